@@ -0,0 +1,109 @@
+package com.uxcam.flutteruxcam;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Method channel dispatch through {@link MethodDispatcher} with a table the size of the
+ * plugin's: a call without arguments, one with typed arguments, and an unknown method.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DispatchBenchmark {
+    private static final int METHODS = 80;
+
+    static final class Call {
+        final String method;
+        final Map<String, Object> arguments;
+
+        Call(String method, Map<String, Object> arguments) {
+            this.method = method;
+            this.arguments = arguments;
+        }
+    }
+
+    static final class Reply {
+        Object value;
+    }
+
+    private static final MethodDispatcher.Channel<Call, Reply> CHANNEL = new MethodDispatcher.Channel<Call, Reply>() {
+        @Override
+        public String method(Call call) {
+            return call.method;
+        }
+
+        @Override
+        public Object argument(Call call, String name) {
+            return call.arguments == null ? null : call.arguments.get(name);
+        }
+
+        @Override
+        public void error(Reply result, String code, String message) {
+            result.value = code;
+        }
+
+        @Override
+        public void notImplemented(Reply result) {
+            result.value = null;
+        }
+    };
+
+    private MethodDispatcher<Call, Reply> dispatcher;
+    private Call noArguments;
+    private Call typedArguments;
+    private Call unknown;
+    private final Reply reply = new Reply();
+
+    @Setup
+    public void setUp() {
+        dispatcher = new MethodDispatcher<>(CHANNEL);
+        for (int i = 0; i < METHODS; i++) {
+            dispatcher.register("method" + i, MethodDispatcher.Queue.MAIN).to((call, result) -> result.value = call);
+        }
+        dispatcher.register("logEventWithProperties", MethodDispatcher.Queue.BACKGROUND)
+                .arg("eventName", String.class).arg("properties", Map.class)
+                .to((call, result) -> result.value = call.arguments.get("eventName"));
+
+        Map<String, Object> arguments = new HashMap<>();
+        arguments.put("eventName", "checkout");
+        arguments.put("properties", new HashMap<String, Object>());
+        noArguments = new Call("method" + (METHODS / 2), null);
+        typedArguments = new Call("logEventWithProperties", arguments);
+        unknown = new Call("notAMethod", null);
+    }
+
+    @Benchmark
+    public void noArguments(Blackhole blackhole) {
+        dispatcher.dispatch(noArguments, reply, MethodDispatcher.Queue.MAIN);
+        blackhole.consume(reply.value);
+    }
+
+    @Benchmark
+    public void typedArguments(Blackhole blackhole) {
+        dispatcher.dispatch(typedArguments, reply, MethodDispatcher.Queue.BACKGROUND);
+        blackhole.consume(reply.value);
+    }
+
+    @Benchmark
+    public void unknownMethod(Blackhole blackhole) {
+        dispatcher.dispatch(unknown, reply, MethodDispatcher.Queue.MAIN);
+        blackhole.consume(reply.value);
+    }
+}
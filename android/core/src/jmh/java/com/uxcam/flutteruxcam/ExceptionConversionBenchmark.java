@@ -0,0 +1,72 @@
+package com.uxcam.flutteruxcam;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turning a Dart error and its frames into an exception, and a repeated report that the
+ * {@link ExceptionReporter} window suppresses.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExceptionConversionBenchmark {
+    @Param({"10", "50"})
+    int frames;
+
+    private ExceptionReporter reporter;
+    private List<Map<String, String>> stackTrace;
+
+    @Setup
+    public void setUp() {
+        reporter = new ExceptionReporter(Platform.JVM, new ExceptionReporter.Sink() {
+            @Override
+            public void reportException(Exception exception) {
+            }
+
+            @Override
+            public void reportException(Exception exception, Map<String, Object> properties) {
+            }
+        });
+        // one report per minute at most, so repeats stay in the window
+        reporter.configure(60_000, 1, 0);
+
+        stackTrace = new ArrayList<>(frames);
+        for (int i = 0; i < frames; i++) {
+            Map<String, String> frame = new HashMap<>();
+            frame.put("class", "package:app/src/screen_" + (i % 7) + ".dart");
+            frame.put("method", "build" + i);
+            frame.put("file", "screen_" + (i % 7) + ".dart");
+            frame.put("line", String.valueOf(10 + i));
+            stackTrace.add(frame);
+        }
+    }
+
+    @Benchmark
+    public Exception toException() {
+        return reporter.toException("Null check operator used on a null value", stackTrace);
+    }
+
+    @Benchmark
+    public void repeatedReport() {
+        reporter.report("Null check operator used on a null value", stackTrace, null);
+    }
+}
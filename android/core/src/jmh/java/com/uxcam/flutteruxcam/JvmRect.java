@@ -0,0 +1,56 @@
+package com.uxcam.flutteruxcam;
+
+/**
+ * Mutable int rect standing in for {@code android.graphics.Rect} in the benchmarks.
+ */
+final class JvmRect {
+    static final RectOps<JvmRect> OPS = new RectOps<JvmRect>() {
+        @Override
+        public JvmRect create(int left, int top, int right, int bottom) {
+            JvmRect rect = new JvmRect();
+            set(rect, left, top, right, bottom);
+            return rect;
+        }
+
+        @Override
+        public void set(JvmRect rect, int left, int top, int right, int bottom) {
+            rect.left = left;
+            rect.top = top;
+            rect.right = right;
+            rect.bottom = bottom;
+        }
+
+        @Override
+        public int left(JvmRect rect) {
+            return rect.left;
+        }
+
+        @Override
+        public int top(JvmRect rect) {
+            return rect.top;
+        }
+
+        @Override
+        public int right(JvmRect rect) {
+            return rect.right;
+        }
+
+        @Override
+        public int bottom(JvmRect rect) {
+            return rect.bottom;
+        }
+
+        @Override
+        public void union(JvmRect rect, JvmRect other) {
+            rect.left = Math.min(rect.left, other.left);
+            rect.top = Math.min(rect.top, other.top);
+            rect.right = Math.max(rect.right, other.right);
+            rect.bottom = Math.max(rect.bottom, other.bottom);
+        }
+    };
+
+    int left;
+    int top;
+    int right;
+    int bottom;
+}
@@ -0,0 +1,144 @@
+package com.uxcam.flutteruxcam;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding one frame of occlusion rects: the legacy list of maps, the flat float array reply,
+ * the binary batch pushed into {@link OcclusionRectStore} followed by a snapshot, and the same
+ * through a {@link SharedOcclusionBuffer}, including the write Dart would do.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RectDecodingBenchmark {
+    @Param({"8", "64"})
+    int rects;
+
+    private List<Map<String, Object>> mapReply;
+    private float[] flatReply;
+    private ByteBuffer batch;
+    private FlutterRectParser<JvmRect> parser;
+    private OcclusionRectStore<JvmRect> store;
+    private float[] bounds;
+    private SharedOcclusionBuffer shared;
+    private OcclusionRectStore<JvmRect> sharedStore;
+    private int seq;
+    private long nowMs;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        mapReply = new ArrayList<>(rects);
+        flatReply = new float[rects * 4];
+        bounds = flatReply;
+        batch = ByteBuffer.allocate(OcclusionRectStore.HEADER_SIZE + rects * OcclusionRectStore.ITEM_SIZE)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        batch.putInt(rects).putInt(0);
+
+        for (int i = 0; i < rects; i++) {
+            float left = random.nextFloat() * 1000;
+            float top = random.nextFloat() * 2000;
+            float right = left + 20 + random.nextFloat() * 300;
+            float bottom = top + 20 + random.nextFloat() * 100;
+
+            Map<String, Object> rect = new HashMap<>();
+            rect.put("left", (double) left);
+            rect.put("top", (double) top);
+            rect.put("right", (double) right);
+            rect.put("bottom", (double) bottom);
+            mapReply.add(rect);
+
+            flatReply[i * 4] = left;
+            flatReply[i * 4 + 1] = top;
+            flatReply[i * 4 + 2] = right;
+            flatReply[i * 4 + 3] = bottom;
+
+            batch.putInt(0).putInt(i).putFloat(left).putFloat(top).putFloat(right).putFloat(bottom).put((byte) 0);
+        }
+        batch.flip();
+
+        parser = new FlutterRectParser<>(Platform.JVM, JvmRect.OPS);
+        store = new OcclusionRectStore<>(JvmRect.OPS);
+        shared = SharedOcclusionBuffer.allocate(rects);
+        sharedStore = new OcclusionRectStore<>(JvmRect.OPS);
+    }
+
+    @Benchmark
+    public List<JvmRect> mapReply() {
+        return parser.parse(mapReply);
+    }
+
+    @Benchmark
+    public List<JvmRect> flatReply() {
+        return parser.parse(flatReply);
+    }
+
+    @Benchmark
+    public List<JvmRect> binaryBatch() {
+        // every rect moves each frame, like a scroll
+        nowMs += 16;
+        store.applyBatch(batch, nowMs);
+        return store.snapshot(nowMs);
+    }
+
+    @Benchmark
+    public List<JvmRect> sharedBuffer() {
+        nowMs += 16;
+        publish((int) (nowMs & 1));
+        sharedStore.applyShared(shared, nowMs, nowMs);
+        return sharedStore.snapshot(nowMs);
+    }
+
+    // Mirrors the Dart writer: fill the back buffer, then publish its seq.
+    private void publish(int shift) {
+        ByteBuffer buffer = shared.buffer();
+        seq = seq >= Integer.MAX_VALUE ? 2 : seq + 1;
+        int base = SharedOcclusionBuffer.HEADER_SIZE
+                + (seq & 1) * (SharedOcclusionBuffer.BUFFER_HEADER_SIZE + rects * SharedOcclusionBuffer.SLOT_SIZE);
+        buffer.putInt(base, 0);
+        int hash = SharedOcclusionBuffer.checksum(seq, rects, nowMs);
+        int offset = base + SharedOcclusionBuffer.BUFFER_HEADER_SIZE;
+        for (int i = 0; i < rects; i++) {
+            hash = putWord(buffer, offset, 0, hash);
+            hash = putWord(buffer, offset + 4, i, hash);
+            for (int side = 0; side < 4; side++) {
+                int bits = Float.floatToRawIntBits(bounds[i * 4 + side] + shift);
+                hash = putWord(buffer, offset + 8 + side * 4, bits, hash);
+            }
+            hash = putWord(buffer, offset + 24, 0, hash);
+            offset += SharedOcclusionBuffer.SLOT_SIZE;
+        }
+        buffer.putInt(base + 4, rects);
+        buffer.putLong(base + 8, nowMs);
+        buffer.putInt(base + 16, hash);
+        buffer.putInt(base, seq);
+        buffer.putInt(SharedOcclusionBuffer.SEQ_OFFSET, seq);
+    }
+
+    private static int putWord(ByteBuffer buffer, int offset, int word, int hash) {
+        buffer.putInt(offset, word);
+        return 31 * hash + word;
+    }
+}
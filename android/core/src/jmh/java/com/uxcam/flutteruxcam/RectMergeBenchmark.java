@@ -0,0 +1,81 @@
+package com.uxcam.flutteruxcam;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Merging one frame of rects with {@link OcclusionRectMerger}. Merging works in place, so each
+ * invocation refills a pooled frame first, the way the plugin does; {@code refillOnly} measures
+ * that part alone.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RectMergeBenchmark {
+    @Param({"8", "32", "128"})
+    int rects;
+
+    // fraction of rects placed next to the previous one, so they merge
+    @Param({"0.0", "0.5"})
+    double clustered;
+
+    private int[] bounds;
+    private RectPool<JvmRect> pool;
+    private OcclusionRectMerger<JvmRect> merger;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        bounds = new int[rects * 4];
+        int left = 0;
+        int top = 0;
+        for (int i = 0; i < rects; i++) {
+            if (i == 0 || random.nextDouble() >= clustered) {
+                left = random.nextInt(1000);
+                top = random.nextInt(2000);
+            } else {
+                top += 40;
+            }
+            bounds[i * 4] = left;
+            bounds[i * 4 + 1] = top;
+            bounds[i * 4 + 2] = left + 20 + random.nextInt(200);
+            bounds[i * 4 + 3] = top + 40;
+        }
+        pool = new RectPool<>(JvmRect.OPS);
+        merger = new OcclusionRectMerger<>(JvmRect.OPS);
+    }
+
+    @Benchmark
+    public List<JvmRect> refillOnly() {
+        return refill();
+    }
+
+    @Benchmark
+    public List<JvmRect> refillAndMerge() {
+        return merger.merge(refill());
+    }
+
+    private List<JvmRect> refill() {
+        List<JvmRect> frame = pool.begin();
+        for (int i = 0; i < bounds.length; i += 4) {
+            pool.add(bounds[i], bounds[i + 1], bounds[i + 2], bounds[i + 3]);
+        }
+        return frame;
+    }
+}
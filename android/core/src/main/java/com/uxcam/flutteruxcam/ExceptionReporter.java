@@ -0,0 +1,244 @@
+package com.uxcam.flutteruxcam;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reporting stage for Dart exceptions that keeps a crash loop from flooding the SDK.
+ *
+ * Reports are fingerprinted by message and top frames. The first report of a fingerprint in a
+ * window is sent straight away; repeats are counted and sent once, as a single report carrying
+ * an {@code occurrences} property, when the window closes. A token bucket caps the overall
+ * report rate, and stack frames are interned so repeated traces reuse the same elements.
+ */
+final class ExceptionReporter {
+    static final long DEFAULT_WINDOW_MS = 10000;
+    static final int DEFAULT_BURST = 10;
+    static final double DEFAULT_REPORTS_PER_SECOND = 1.0;
+
+    static final String OCCURRENCES = "occurrences";
+
+    private static final int FINGERPRINT_FRAMES = 5;
+    private static final int MAX_INTERNED_FRAMES = 512;
+    private static final int MAX_TRACKED_FINGERPRINTS = 128;
+
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "uxcam-exception-window");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Stand-in for the SDK's exception reporting calls.
+     */
+    interface Sink {
+        void reportException(Exception exception);
+
+        void reportException(Exception exception, Map<String, Object> properties);
+    }
+
+    private final Platform platform;
+    private final Sink sink;
+
+    private long windowMs = DEFAULT_WINDOW_MS;
+    private int burst = DEFAULT_BURST;
+    private double reportsPerSecond = DEFAULT_REPORTS_PER_SECOND;
+
+    private double tokens = DEFAULT_BURST;
+    private long lastRefillMs = -1;
+
+    private final Map<String, Window> windows = new HashMap<>();
+
+    private final Map<String, StackTraceElement> internedFrames =
+            new LinkedHashMap<String, StackTraceElement>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, StackTraceElement> eldest) {
+                    return size() > MAX_INTERNED_FRAMES;
+                }
+            };
+
+    private long receivedCount = 0;
+    private long reportedCount = 0;
+    private long suppressedCount = 0;
+    private long rateLimitedCount = 0;
+
+    ExceptionReporter(Platform platform, Sink sink) {
+        this.platform = platform;
+        this.sink = sink;
+    }
+
+    synchronized void configure(long windowMs, int burst, double reportsPerSecond) {
+        this.windowMs = Math.max(0, windowMs);
+        this.burst = Math.max(1, burst);
+        this.reportsPerSecond = Math.max(0, reportsPerSecond);
+        this.tokens = Math.min(tokens, this.burst);
+    }
+
+    synchronized void report(String message, List<Map<String, String>> frames, Map<String, Object> properties) {
+        long now = platform.uptimeMillis();
+        receivedCount++;
+
+        String fingerprint = fingerprint(message, frames);
+        Window window = windows.get(fingerprint);
+        if (window != null && now - window.startMs < windowMs) {
+            window.repeats++;
+            suppressedCount++;
+            return;
+        }
+
+        if (window != null) {
+            windows.remove(fingerprint);
+            flush(window);
+        }
+
+        if (!takeToken(now)) {
+            rateLimitedCount++;
+            return;
+        }
+
+        if (windowMs > 0) {
+            startWindow(fingerprint, new Window(now, message, frames, properties));
+        }
+        send(message, frames, properties, 0);
+    }
+
+    synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("received", receivedCount);
+        stats.put("reported", reportedCount);
+        stats.put("suppressed", suppressedCount);
+        stats.put("rateLimited", rateLimitedCount);
+        stats.put("internedFrames", internedFrames.size());
+        return stats;
+    }
+
+    private void startWindow(final String fingerprint, final Window window) {
+        if (windows.size() >= MAX_TRACKED_FINGERPRINTS) {
+            flushExpired(window.startMs);
+            if (windows.size() >= MAX_TRACKED_FINGERPRINTS) return;
+        }
+        windows.put(fingerprint, window);
+        TIMER.schedule(() -> closeWindow(fingerprint, window), windowMs, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void closeWindow(String fingerprint, Window window) {
+        if (windows.get(fingerprint) != window) return;
+        windows.remove(fingerprint);
+        flush(window);
+    }
+
+    private void flushExpired(long now) {
+        Iterator<Map.Entry<String, Window>> iterator = windows.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Window> entry = iterator.next();
+            if (now - entry.getValue().startMs >= windowMs) {
+                iterator.remove();
+                flush(entry.getValue());
+            }
+        }
+    }
+
+    // Sends the repeats of a closed window as one report, with the repeat count as
+    // occurrences. The window consumed a token when it opened, so this bypasses the limiter.
+    private void flush(Window window) {
+        if (window.repeats == 0) return;
+        send(window.message, window.frames, window.properties, window.repeats);
+    }
+
+    // occurrences of zero marks a first report, which goes out without a count
+    private void send(String message, List<Map<String, String>> frames, Map<String, Object> properties, int occurrences) {
+        Exception exception = toException(message, frames);
+        reportedCount++;
+
+        if (occurrences > 0) {
+            Map<String, Object> withCount = properties == null ? new HashMap<>() : new HashMap<>(properties);
+            withCount.put(OCCURRENCES, occurrences);
+            sink.reportException(exception, withCount);
+        } else if (properties == null || properties.size() == 0) {
+            sink.reportException(exception);
+        } else {
+            sink.reportException(exception, properties);
+        }
+    }
+
+    private boolean takeToken(long now) {
+        if (lastRefillMs >= 0) {
+            tokens = Math.min(burst, tokens + (now - lastRefillMs) * reportsPerSecond / 1000.0);
+        }
+        lastRefillMs = now;
+        if (tokens < 1) return false;
+        tokens -= 1;
+        return true;
+    }
+
+    private static String fingerprint(String message, List<Map<String, String>> frames) {
+        StringBuilder builder = new StringBuilder(message);
+        int count = Math.min(FINGERPRINT_FRAMES, frames.size());
+        for (int i = 0; i < count; i++) {
+            Map<String, String> frame = frames.get(i);
+            builder.append('\n')
+                    .append(frame.get("class")).append('.')
+                    .append(frame.get("method")).append('@')
+                    .append(frame.get("file")).append(':')
+                    .append(frame.get("line"));
+        }
+        return builder.toString();
+    }
+
+    synchronized Exception toException(String dartExceptionMessage, List<Map<String, String>> errorElements) {
+        final List<StackTraceElement> elements = new ArrayList<>(errorElements.size());
+        Exception exception = new FlutterError(dartExceptionMessage);
+
+        for (Map<String, String> errorElement : errorElements) {
+            final StackTraceElement stackTraceElement = internFrame(errorElement);
+            if (stackTraceElement != null) {
+                elements.add(stackTraceElement);
+            }
+        }
+        exception.setStackTrace(elements.toArray(new StackTraceElement[0]));
+        return exception;
+    }
+
+    private StackTraceElement internFrame(Map<String, String> errorElement) {
+        String fileName = errorElement.get("file");
+        String lineNumber = errorElement.get("line");
+        String className = errorElement.get("class");
+        String methodName = errorElement.get("method");
+
+        String key = className + '.' + methodName + '@' + fileName + ':' + lineNumber;
+        StackTraceElement element = internedFrames.get(key);
+        if (element != null) return element;
+
+        try {
+            element = new StackTraceElement(className == null ? "" : className, methodName, fileName, Integer.parseInt(Objects.requireNonNull(lineNumber)));
+        } catch (Exception e) {
+            platform.logError("Unable to generate stack trace element from Dart error.", null);
+            return null;
+        }
+        internedFrames.put(key, element);
+        return element;
+    }
+
+    private static final class Window {
+        final long startMs;
+        final String message;
+        final List<Map<String, String>> frames;
+        final Map<String, Object> properties;
+        int repeats = 0;
+
+        Window(long startMs, String message, List<Map<String, String>> frames, Map<String, Object> properties) {
+            this.startMs = startMs;
+            this.message = message;
+            this.frames = frames;
+            this.properties = properties;
+        }
+    }
+}
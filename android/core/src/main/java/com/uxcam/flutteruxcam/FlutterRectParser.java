@@ -0,0 +1,72 @@
+package com.uxcam.flutteruxcam;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decodes the rects Dart sends in answer to an occlusion request into pooled rects.
+ *
+ * Current Dart clients send a flat {@code float[]} of [left, top, right, bottom, ...]; older ones
+ * send a list of maps with those keys. Not thread safe; the returned list comes from the parser's
+ * {@link RectPool} and is reused a few frames later.
+ */
+final class FlutterRectParser<R> {
+    private final Platform platform;
+    private final RectPool<R> rectPool;
+
+    FlutterRectParser(Platform platform, RectOps<R> ops) {
+        this.platform = platform;
+        this.rectPool = new RectPool<>(ops);
+    }
+
+    /**
+     * Returns the decoded rects, an empty list for a null reply, or null when the reply is malformed.
+     */
+    @SuppressWarnings("unchecked")
+    List<R> parse(Object reply) {
+        if (reply == null) {
+            return Collections.emptyList();
+        }
+
+        if (reply instanceof float[]) {
+            return parseFlat((float[]) reply);
+        }
+
+        try {
+            List<Map<String, Object>> rectMaps = (List<Map<String, Object>>) reply;
+            List<R> rects = rectPool.begin();
+
+            for (Map<String, Object> rectMap : rectMaps) {
+                double left = ((Number) rectMap.get("left")).doubleValue();
+                double top = ((Number) rectMap.get("top")).doubleValue();
+                double right = ((Number) rectMap.get("right")).doubleValue();
+                double bottom = ((Number) rectMap.get("bottom")).doubleValue();
+
+                rectPool.addOutward(left, top, right, bottom);
+            }
+
+            return rects;
+        } catch (Exception e) {
+            platform.logError("[Occlusion] Failed to parse rects: " + e.getMessage(), null);
+            return null;
+        }
+    }
+
+    void trim() {
+        rectPool.trim();
+    }
+
+    private List<R> parseFlat(float[] values) {
+        if (values.length % 4 != 0) {
+            platform.logError("[Occlusion] Failed to parse rects: unexpected length " + values.length, null);
+            return null;
+        }
+
+        List<R> rects = rectPool.begin();
+        for (int i = 0; i < values.length; i += 4) {
+            rectPool.addOutward(values[i], values[i + 1], values[i + 2], values[i + 3]);
+        }
+        return rects;
+    }
+}
@@ -0,0 +1,163 @@
+package com.uxcam.flutteruxcam;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Preallocated ring of gestures decoded from the binary {@code uxcam_gesture_v1} channel.
+ *
+ * Messages are decoded on the channel's background queue and drained on the main thread in
+ * batches. When the ring is full the oldest gesture is dropped and counted. Under memory pressure
+ * an empty ring can be released with {@link #trim}; the next gesture allocates it again.
+ */
+final class GestureBuffer {
+    static final int DEFAULT_CAPACITY = 256;
+
+    static final int KIND_GESTURE = 0;
+    static final int KIND_DEFINE = 1;
+    static final int KIND_RESET = 2;
+
+    private static final int HEADER_SIZE = 8;
+    private static final int INITIAL_CONTENT_TABLE_SIZE = 64;
+    private static final int GESTURE_SIZE = 20;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    interface Sink {
+        void onGesture(float x, float y, long timestampMs, String content);
+    }
+
+    private final int capacity;
+    private float[] xs;
+    private float[] ys;
+    private long[] timestamps;
+    private String[] contents;
+    private int head = 0;
+    private int size = 0;
+
+    // Interned content strings by the id Dart assigned; only touched by the decoding thread.
+    private String[] contentTable = new String[INITIAL_CONTENT_TABLE_SIZE];
+
+    private long receivedCount = 0;
+    private long deliveredCount = 0;
+    private long droppedCount = 0;
+
+    GestureBuffer(int capacity) {
+        this.capacity = capacity;
+        allocate();
+    }
+
+    /**
+     * Decodes one message. Layout (little endian): header [count:4][reserved:4], then records
+     * starting with a kind byte: gesture [x:4][y:4][timestampMs:8][contentId:4],
+     * define [contentId:4][length:4][utf8 bytes], or reset with no payload.
+     */
+    void decode(ByteBuffer message) {
+        if (message == null) return;
+
+        ByteBuffer buffer = message.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        buffer.rewind();
+        if (buffer.remaining() < HEADER_SIZE) return;
+
+        int count = buffer.getInt();
+        buffer.getInt(); // reserved
+
+        for (int i = 0; i < count && buffer.hasRemaining(); i++) {
+            int kind = buffer.get();
+            if (kind == KIND_GESTURE) {
+                if (buffer.remaining() < GESTURE_SIZE) return;
+                float x = buffer.getFloat();
+                float y = buffer.getFloat();
+                long timestampMs = buffer.getLong();
+                int contentId = buffer.getInt();
+                String content = contentId >= 0 && contentId < contentTable.length ? contentTable[contentId] : null;
+                if (content != null) {
+                    push(x, y, timestampMs, content);
+                }
+            } else if (kind == KIND_DEFINE) {
+                if (buffer.remaining() < 8) return;
+                int contentId = buffer.getInt();
+                int length = buffer.getInt();
+                if (contentId < 0 || length < 0 || buffer.remaining() < length) return;
+                byte[] bytes = new byte[length];
+                buffer.get(bytes);
+                define(contentId, new String(bytes, UTF_8));
+            } else if (kind == KIND_RESET) {
+                // also gives back a table grown by a long session
+                contentTable = new String[INITIAL_CONTENT_TABLE_SIZE];
+            } else {
+                return;
+            }
+        }
+    }
+
+    synchronized void push(float x, float y, long timestampMs, String content) {
+        receivedCount++;
+        if (xs == null) allocate();
+        if (size == capacity) {
+            head = (head + 1) % capacity;
+            size--;
+            droppedCount++;
+        }
+        int slot = (head + size) % capacity;
+        xs[slot] = x;
+        ys[slot] = y;
+        timestamps[slot] = timestampMs;
+        contents[slot] = content;
+        size++;
+    }
+
+    /**
+     * Hands every buffered gesture to {@code sink}, oldest first, and returns how many were drained.
+     */
+    synchronized int drain(Sink sink) {
+        int drained = size;
+        while (size > 0) {
+            String content = contents[head];
+            contents[head] = null;
+            sink.onGesture(xs[head], ys[head], timestamps[head], content);
+            head = (head + 1) % capacity;
+            size--;
+        }
+        deliveredCount += drained;
+        return drained;
+    }
+
+    /**
+     * Releases the ring when it holds no gestures, for memory pressure.
+     */
+    synchronized void trim() {
+        if (size > 0) return;
+        xs = null;
+        ys = null;
+        timestamps = null;
+        contents = null;
+        head = 0;
+    }
+
+    synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("received", receivedCount);
+        stats.put("delivered", deliveredCount);
+        stats.put("dropped", droppedCount);
+        stats.put("pending", size);
+        return stats;
+    }
+
+    private void allocate() {
+        xs = new float[capacity];
+        ys = new float[capacity];
+        timestamps = new long[capacity];
+        contents = new String[capacity];
+    }
+
+    private void define(int contentId, String content) {
+        if (contentId >= contentTable.length) {
+            contentTable = Arrays.copyOf(contentTable, Math.max(contentId + 1, contentTable.length * 2));
+        }
+        contentTable[contentId] = content;
+    }
+}
@@ -0,0 +1,111 @@
+package com.uxcam.flutteruxcam;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Method name to handler table for the plugin's method channels, built once at attach time.
+ *
+ * Each method declares the queue it may run on and the arguments it reads. Main methods are
+ * only served by the main channel; background methods are served by both, so older Dart code
+ * calling them on the main channel keeps working. An argument present with the wrong type is
+ * answered with an error before the handler runs, and unknown methods get notImplemented.
+ * Calls and results are the channel's own types, read through a {@link Channel}.
+ */
+final class MethodDispatcher<C, R> {
+    enum Queue {
+        MAIN,
+        BACKGROUND
+    }
+
+    interface Handler<C, R> {
+        void handle(C call, R result);
+    }
+
+    /**
+     * Stand-in for Flutter's {@code MethodCall} and {@code MethodChannel.Result}.
+     */
+    interface Channel<C, R> {
+        String method(C call);
+
+        Object argument(C call, String name);
+
+        void error(R result, String code, String message);
+
+        void notImplemented(R result);
+    }
+
+    static final String INVALID_ARGUMENT = "invalid_argument";
+
+    private final Channel<C, R> channel;
+    private final Map<String, Entry<C, R>> entries = new HashMap<>();
+
+    MethodDispatcher(Channel<C, R> channel) {
+        this.channel = channel;
+    }
+
+    Registration register(String method, Queue queue) {
+        return new Registration(method, queue);
+    }
+
+    void dispatch(C call, R result, Queue from) {
+        String method = channel.method(call);
+        Entry<C, R> entry = entries.get(method);
+        if (entry == null || (from == Queue.BACKGROUND && entry.queue != Queue.BACKGROUND)) {
+            channel.notImplemented(result);
+            return;
+        }
+
+        for (int i = 0; i < entry.argumentNames.length; i++) {
+            Object value = channel.argument(call, entry.argumentNames[i]);
+            if (value != null && !entry.argumentTypes[i].isInstance(value)) {
+                channel.error(result, INVALID_ARGUMENT, method + ": '" + entry.argumentNames[i] + "' must be "
+                        + entry.argumentTypes[i].getSimpleName() + ", got " + value.getClass().getSimpleName());
+                return;
+            }
+        }
+        entry.handler.handle(call, result);
+    }
+
+    final class Registration {
+        private final String method;
+        private final Queue queue;
+        private final List<String> argumentNames = new ArrayList<>();
+        private final List<Class<?>> argumentTypes = new ArrayList<>();
+
+        private Registration(String method, Queue queue) {
+            this.method = method;
+            this.queue = queue;
+        }
+
+        Registration arg(String name, Class<?> type) {
+            argumentNames.add(name);
+            argumentTypes.add(type);
+            return this;
+        }
+
+        void to(Handler<C, R> handler) {
+            if (entries.containsKey(method)) {
+                throw new IllegalStateException("Duplicate handler for " + method);
+            }
+            entries.put(method, new Entry<>(queue, handler,
+                    argumentNames.toArray(new String[0]), argumentTypes.toArray(new Class<?>[0])));
+        }
+    }
+
+    private static final class Entry<C, R> {
+        final Queue queue;
+        final Handler<C, R> handler;
+        final String[] argumentNames;
+        final Class<?>[] argumentTypes;
+
+        Entry(Queue queue, Handler<C, R> handler, String[] argumentNames, Class<?>[] argumentTypes) {
+            this.queue = queue;
+            this.handler = handler;
+            this.argumentNames = argumentNames;
+            this.argumentTypes = argumentTypes;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.uxcam.flutteruxcam;
+
+import java.util.List;
+
+/**
+ * Stand-in for the SDK's {@code CrossPlatformDelegate}, which asks the plugin for occlusion
+ * rects before each screenshot.
+ */
+interface OcclusionDelegate<R> {
+    interface Callback<R> {
+        void onRectsReady(List<R> rects);
+    }
+
+    interface Listener<R> {
+        void requestOcclusionRects(Callback<R> callback);
+    }
+
+    void setListener(Listener<R> listener);
+}
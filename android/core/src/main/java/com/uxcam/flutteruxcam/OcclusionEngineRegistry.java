@@ -0,0 +1,267 @@
+package com.uxcam.flutteruxcam;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide set of Flutter engines that provide occlusion rects.
+ *
+ * The SDK holds a single occlusion listener, so one listener is installed for all engines.
+ * Each request fans out to every registered engine in parallel and the answers are merged into
+ * one rect set under a single deadline; if any engine fails, or the deadline passes first, the
+ * rects each engine last answered with are used instead. Each engine answers for all of its
+ * Flutter views at once.
+ * Dart round trips can be rate limited: an engine that would have to ask Dart again too soon
+ * answers with its last rects instead. Engines answering from their native store are never
+ * limited, as that costs no round trip.
+ */
+final class OcclusionEngineRegistry<R> {
+    interface Source<R> {
+        /**
+         * Returns true when {@link #requestRects} has to ask Dart, false when the rects are
+         * already on the native side.
+         */
+        boolean needsRoundTrip();
+
+        /**
+         * Answers {@code waiter} with the engine's current rects, from any thread.
+         */
+        void requestRects(OcclusionRequestCoalescer.Waiter<R> waiter);
+    }
+
+    private final ConcurrentHashMap<Integer, Engine<R>> engines = new ConcurrentHashMap<>();
+    private final AtomicInteger nextEngineId = new AtomicInteger();
+    private final Platform platform;
+    private final RectOps<R> ops;
+    private final OcclusionRequestGuard<R> guard;
+    private final OcclusionRectMerger<R> merger;
+    private final PluginMetrics metrics;
+    private boolean listenerAttached = false;
+    private volatile long minRequestIntervalMs = 0;
+    private final AtomicLong throttledCount = new AtomicLong();
+
+    OcclusionEngineRegistry(Platform platform, RectOps<R> ops, PluginMetrics metrics) {
+        this.platform = platform;
+        this.ops = ops;
+        this.guard = new OcclusionRequestGuard<>(this::lastKnownGoodRects);
+        this.merger = new OcclusionRectMerger<>(ops);
+        this.metrics = metrics;
+    }
+
+    /**
+     * Adds an engine and returns its id for {@link #unregister}. The SDK listener is installed
+     * with the first engine.
+     */
+    synchronized int register(Source<R> source, OcclusionDelegate<R> delegate) {
+        int engineId = nextEngineId.getAndIncrement();
+        engines.put(engineId, new Engine<>(source, ops));
+        if (!listenerAttached && delegate != null) {
+            delegate.setListener(this::fanOut);
+            listenerAttached = true;
+        }
+        return engineId;
+    }
+
+    /**
+     * Removes an engine; the rects it last answered with are no longer part of any fallback.
+     */
+    synchronized void unregister(int engineId) {
+        engines.remove(engineId);
+    }
+
+    /**
+     * Sets the smallest gap between Dart round trips of one engine; zero sends every request.
+     */
+    void setMinRequestIntervalMs(long minRequestIntervalMs) {
+        this.minRequestIntervalMs = minRequestIntervalMs;
+    }
+
+    /**
+     * Releases the rects pooled for fallbacks beyond what each engine needs now, for memory
+     * pressure.
+     */
+    void trim() {
+        for (Engine<R> engine : engines.values()) {
+            engine.trim();
+        }
+    }
+
+    OcclusionRequestGuard<R> guard() {
+        return guard;
+    }
+
+    OcclusionRectMerger<R> merger() {
+        return merger;
+    }
+
+    void appendStats(Map<String, Object> stats) {
+        stats.put("engines", engines.size());
+        stats.put("throttled", throttledCount.get());
+    }
+
+    private void fanOut(OcclusionDelegate.Callback<R> callback) {
+        OcclusionRequestGuard<R>.Pending pending = guard.begin(rects -> {
+            List<R> merged = merger.merge(rects);
+            metrics.recordRectsPerFrame(merged.size());
+            callback.onRectsReady(merged);
+        });
+
+        List<Engine<R>> targets = new ArrayList<>(engines.values());
+        if (targets.isEmpty()) {
+            pending.complete(Collections.<R>emptyList());
+        } else if (targets.size() == 1) {
+            request(targets.get(0), pending);
+        } else {
+            FanIn<R> fanIn = new FanIn<>(pending, targets.size());
+            for (Engine<R> engine : targets) {
+                request(engine, fanIn.slot());
+            }
+        }
+    }
+
+    private void request(Engine<R> engine, OcclusionRequestCoalescer.Waiter<R> waiter) {
+        long intervalMs = minRequestIntervalMs;
+        if (intervalMs > 0 && engine.source.needsRoundTrip()
+                && !engine.claimRoundTrip(platform.uptimeMillis(), intervalMs)) {
+            throttledCount.incrementAndGet();
+            waiter.complete(engine.lastKnownGoodRects());
+            return;
+        }
+        engine.request(waiter);
+    }
+
+    // Fallback for the guard: what every registered engine last answered with.
+    private List<R> lastKnownGoodRects() {
+        List<R> rects = new ArrayList<>();
+        for (Engine<R> engine : engines.values()) {
+            rects.addAll(engine.lastKnownGoodRects());
+        }
+        return rects;
+    }
+
+    /**
+     * A registered source with the rects it last answered with, copied as flat
+     * [left, top, right, bottom] values since the delivered rects belong to reusable pools.
+     */
+    private static final class Engine<R> {
+        private final Source<R> source;
+        private final RectPool<R> pool;
+        private final RectOps<R> ops;
+        private int[] lastKnownGood = new int[0];
+        private int lastKnownGoodCount = 0;
+        private long lastRoundTripAtMs = -1;
+
+        Engine(Source<R> source, RectOps<R> ops) {
+            this.source = source;
+            this.ops = ops;
+            this.pool = new RectPool<>(ops);
+        }
+
+        void request(final OcclusionRequestCoalescer.Waiter<R> waiter) {
+            source.requestRects(new OcclusionRequestCoalescer.Waiter<R>() {
+                @Override
+                public void complete(List<R> rects) {
+                    remember(rects);
+                    waiter.complete(rects);
+                }
+
+                @Override
+                public void fail() {
+                    waiter.fail();
+                }
+            });
+        }
+
+        /**
+         * Returns true, and counts a round trip now, unless the last one was less than
+         * {@code intervalMs} ago.
+         */
+        synchronized boolean claimRoundTrip(long nowMs, long intervalMs) {
+            if (lastRoundTripAtMs >= 0 && nowMs - lastRoundTripAtMs < intervalMs) return false;
+            lastRoundTripAtMs = nowMs;
+            return true;
+        }
+
+        synchronized void trim() {
+            pool.trim();
+            int required = lastKnownGoodCount * 4;
+            if (lastKnownGood.length > required) {
+                lastKnownGood = Arrays.copyOf(lastKnownGood, required);
+            }
+        }
+
+        synchronized List<R> lastKnownGoodRects() {
+            List<R> rects = pool.begin();
+            for (int i = 0; i < lastKnownGoodCount; i++) {
+                int offset = i * 4;
+                pool.add(lastKnownGood[offset], lastKnownGood[offset + 1],
+                        lastKnownGood[offset + 2], lastKnownGood[offset + 3]);
+            }
+            return rects;
+        }
+
+        private synchronized void remember(List<R> rects) {
+            int required = rects.size() * 4;
+            if (lastKnownGood.length < required) {
+                lastKnownGood = new int[required];
+            }
+            int offset = 0;
+            for (int i = 0, n = rects.size(); i < n; i++) {
+                R rect = rects.get(i);
+                lastKnownGood[offset++] = ops.left(rect);
+                lastKnownGood[offset++] = ops.top(rect);
+                lastKnownGood[offset++] = ops.right(rect);
+                lastKnownGood[offset++] = ops.bottom(rect);
+            }
+            lastKnownGoodCount = rects.size();
+        }
+    }
+
+    /**
+     * Collects one answer per engine and completes the request once all are in. A failing
+     * engine fails the request straight away, since the fallback does not need the others.
+     */
+    private static final class FanIn<R> {
+        private final OcclusionRequestGuard<R>.Pending pending;
+        private final List<R> rects = new ArrayList<>();
+        private int remaining;
+
+        FanIn(OcclusionRequestGuard<R>.Pending pending, int engines) {
+            this.pending = pending;
+            this.remaining = engines;
+        }
+
+        OcclusionRequestCoalescer.Waiter<R> slot() {
+            return new OcclusionRequestCoalescer.Waiter<R>() {
+                private boolean answered = false;
+
+                @Override
+                public void complete(List<R> engineRects) {
+                    synchronized (FanIn.this) {
+                        if (answered) return;
+                        answered = true;
+                        rects.addAll(engineRects);
+                        if (--remaining > 0) return;
+                    }
+                    pending.complete(rects);
+                }
+
+                @Override
+                public void fail() {
+                    synchronized (FanIn.this) {
+                        if (answered) return;
+                        answered = true;
+                        remaining--;
+                    }
+                    pending.fail();
+                }
+            };
+        }
+    }
+}
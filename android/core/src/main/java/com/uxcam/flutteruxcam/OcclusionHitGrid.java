@@ -0,0 +1,224 @@
+package com.uxcam.flutteruxcam;
+
+import java.util.Arrays;
+
+/**
+ * Uniform grid over occlusion rects for point hit tests.
+ *
+ * Each rect id is listed in every cell its bounds touch, so a hit test only looks at the ids of
+ * one cell. Rects covering too many cells go to a short list that every hit test checks instead.
+ * Bounds themselves stay with the owner, which answers the exact containment test. Cells live in
+ * an open-addressing map keyed by the packed cell coordinates, and emptied id lists are kept for
+ * reuse, so neither hit tests nor steady-state updates allocate. Not thread-safe; the owning
+ * {@link OcclusionRectStore} synchronizes access.
+ */
+final class OcclusionHitGrid {
+    static final int CELL_SIZE_PX = 128;
+    private static final int MAX_CELLS_PER_RECT = 256;
+
+    interface Bounds {
+        boolean contains(int id, float x, float y);
+    }
+
+    private final CellMap cells = new CellMap();
+    private final IdList oversized = new IdList();
+
+    void add(int id, float left, float top, float right, float bottom) {
+        if (isOversized(left, top, right, bottom)) {
+            oversized.add(id);
+            return;
+        }
+        for (int cy = cell(top), maxY = cell(bottom); cy <= maxY; cy++) {
+            for (int cx = cell(left), maxX = cell(right); cx <= maxX; cx++) {
+                cells.obtain(key(cx, cy)).add(id);
+            }
+        }
+    }
+
+    /**
+     * Removes {@code id}, which must have been added with the given bounds.
+     */
+    void remove(int id, float left, float top, float right, float bottom) {
+        if (isOversized(left, top, right, bottom)) {
+            oversized.remove(id);
+            return;
+        }
+        for (int cy = cell(top), maxY = cell(bottom); cy <= maxY; cy++) {
+            for (int cx = cell(left), maxX = cell(right); cx <= maxX; cx++) {
+                long key = key(cx, cy);
+                IdList list = cells.get(key);
+                if (list == null) continue;
+                list.remove(id);
+                if (list.size == 0) cells.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Moves {@code id} to new bounds, skipping the grid update when it stays in the same cells.
+     */
+    void move(int id, float oldLeft, float oldTop, float oldRight, float oldBottom,
+              float left, float top, float right, float bottom) {
+        boolean wasOversized = isOversized(oldLeft, oldTop, oldRight, oldBottom);
+        if (wasOversized == isOversized(left, top, right, bottom)
+                && (wasOversized || (cell(oldLeft) == cell(left) && cell(oldTop) == cell(top)
+                && cell(oldRight) == cell(right) && cell(oldBottom) == cell(bottom)))) {
+            return;
+        }
+        remove(id, oldLeft, oldTop, oldRight, oldBottom);
+        add(id, left, top, right, bottom);
+    }
+
+    void clear() {
+        cells.clear();
+        oversized.size = 0;
+    }
+
+    boolean hit(float x, float y, Bounds bounds) {
+        if (oversized.anyContains(x, y, bounds)) return true;
+        IdList list = cells.get(key(cell(x), cell(y)));
+        return list != null && list.anyContains(x, y, bounds);
+    }
+
+    private static boolean isOversized(float left, float top, float right, float bottom) {
+        long columns = (long) cell(right) - cell(left) + 1;
+        long rows = (long) cell(bottom) - cell(top) + 1;
+        return columns * rows > MAX_CELLS_PER_RECT;
+    }
+
+    private static int cell(float coordinate) {
+        return (int) Math.floor(coordinate / CELL_SIZE_PX);
+    }
+
+    private static long key(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Cell key to id list map with linear probing; a null list marks a free slot. Removal shifts
+     * the following entries back instead of leaving tombstones.
+     */
+    private static final class CellMap {
+        private static final int INITIAL_CAPACITY = 64;
+        private static final int MAX_SPARE = 64;
+
+        private long[] keys = new long[INITIAL_CAPACITY];
+        private IdList[] lists = new IdList[INITIAL_CAPACITY];
+        private int size = 0;
+        private final IdList[] spare = new IdList[MAX_SPARE];
+        private int spareCount = 0;
+
+        IdList get(long key) {
+            int mask = lists.length - 1;
+            for (int slot = slot(key, mask); lists[slot] != null; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) return lists[slot];
+            }
+            return null;
+        }
+
+        /**
+         * Returns the list of {@code key}, adding an empty one when there is none.
+         */
+        IdList obtain(long key) {
+            int mask = lists.length - 1;
+            int slot = slot(key, mask);
+            for (; lists[slot] != null; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) return lists[slot];
+            }
+            if ((size + 1) * 4 > lists.length * 3) {
+                grow();
+                return obtain(key);
+            }
+            IdList list = spareCount > 0 ? spare[--spareCount] : new IdList();
+            keys[slot] = key;
+            lists[slot] = list;
+            size++;
+            return list;
+        }
+
+        void remove(long key) {
+            int mask = lists.length - 1;
+            int gap = slot(key, mask);
+            while (lists[gap] != null && keys[gap] != key) {
+                gap = (gap + 1) & mask;
+            }
+            if (lists[gap] == null) return;
+            recycle(lists[gap]);
+            size--;
+
+            // move later entries of the probe run into the gap when that keeps them reachable
+            for (int slot = (gap + 1) & mask; lists[slot] != null; slot = (slot + 1) & mask) {
+                int home = slot(keys[slot], mask);
+                if (((slot - home) & mask) >= ((slot - gap) & mask)) {
+                    keys[gap] = keys[slot];
+                    lists[gap] = lists[slot];
+                    gap = slot;
+                }
+            }
+            lists[gap] = null;
+        }
+
+        void clear() {
+            for (int i = 0; i < lists.length; i++) {
+                if (lists[i] != null) {
+                    recycle(lists[i]);
+                    lists[i] = null;
+                }
+            }
+            size = 0;
+        }
+
+        private void recycle(IdList list) {
+            list.size = 0;
+            if (spareCount < MAX_SPARE) spare[spareCount++] = list;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            IdList[] oldLists = lists;
+            keys = new long[oldLists.length * 2];
+            lists = new IdList[oldLists.length * 2];
+            int mask = lists.length - 1;
+            for (int i = 0; i < oldLists.length; i++) {
+                if (oldLists[i] == null) continue;
+                int slot = slot(oldKeys[i], mask);
+                while (lists[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                lists[slot] = oldLists[i];
+            }
+        }
+
+        private static int slot(long key, int mask) {
+            long hash = key * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32)) & mask;
+        }
+    }
+
+    private static final class IdList {
+        int[] ids = new int[4];
+        int size = 0;
+
+        void add(int id) {
+            if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+            ids[size++] = id;
+        }
+
+        void remove(int id) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == id) {
+                    ids[i] = ids[--size];
+                    return;
+                }
+            }
+        }
+
+        boolean anyContains(float x, float y, Bounds bounds) {
+            for (int i = 0; i < size; i++) {
+                if (bounds.contains(ids[i], x, y)) return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.uxcam.flutteruxcam;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collapses overlapping, nested and touching occlusion rects into their covering bounds so the
+ * SDK runs one blur or overlay pass per cluster instead of one per widget.
+ *
+ * Rects within {@code slackPx} of each other count as touching. Merging works in place on the
+ * given list, which is always a list the plugin owns.
+ */
+final class OcclusionRectMerger<R> {
+    static final int DEFAULT_SLACK_PX = 2;
+
+    private final RectOps<R> ops;
+    private volatile boolean enabled = true;
+    private volatile int slackPx = DEFAULT_SLACK_PX;
+
+    private final AtomicLong frameCount = new AtomicLong();
+    private final AtomicLong rectsIn = new AtomicLong();
+    private final AtomicLong rectsOut = new AtomicLong();
+
+    OcclusionRectMerger(RectOps<R> ops) {
+        this.ops = ops;
+    }
+
+    void configure(boolean enabled, int slackPx) {
+        this.enabled = enabled;
+        this.slackPx = Math.max(0, slackPx);
+    }
+
+    List<R> merge(List<R> rects) {
+        int count = rects.size();
+        frameCount.incrementAndGet();
+        rectsIn.addAndGet(count);
+
+        if (enabled && count > 1) {
+            sortByLeft(rects);
+            mergeSorted(rects, slackPx);
+        }
+
+        rectsOut.addAndGet(rects.size());
+        return rects;
+    }
+
+    Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("slackPx", slackPx);
+        stats.put("frames", frameCount.get());
+        stats.put("rectsIn", rectsIn.get());
+        stats.put("rectsOut", rectsOut.get());
+        return stats;
+    }
+
+    // Sweep along x: once a candidate starts right of the current rect (plus slack), no later
+    // one can touch it. Unions only grow rects, so passes repeat until nothing merges.
+    private void mergeSorted(List<R> rects, int slack) {
+        boolean merged;
+        do {
+            merged = false;
+            for (int i = 0; i < rects.size(); i++) {
+                R current = rects.get(i);
+                for (int j = i + 1; j < rects.size(); j++) {
+                    R candidate = rects.get(j);
+                    if (ops.left(candidate) > ops.right(current) + slack) break;
+                    if (touches(current, candidate, slack)) {
+                        ops.union(current, candidate);
+                        rects.remove(j);
+                        j = i;
+                        merged = true;
+                    }
+                }
+            }
+        } while (merged);
+    }
+
+    private boolean touches(R a, R b, int slack) {
+        return ops.left(a) <= ops.right(b) + slack && ops.left(b) <= ops.right(a) + slack
+                && ops.top(a) <= ops.bottom(b) + slack && ops.top(b) <= ops.bottom(a) + slack;
+    }
+
+    // Insertion sort: frames hold a few dozen rects at most, and unlike Collections.sort it
+    // does not copy the list into a temporary array.
+    private void sortByLeft(List<R> rects) {
+        for (int i = 1; i < rects.size(); i++) {
+            R rect = rects.get(i);
+            int left = ops.left(rect);
+            int j = i - 1;
+            while (j >= 0 && ops.left(rects.get(j)) > left) {
+                rects.set(j + 1, rects.get(j));
+                j--;
+            }
+            rects.set(j + 1, rect);
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package com.uxcam.flutteruxcam;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Native copy of the Dart occlusion registry, fed by the binary {@code uxcam_occlusion_v2} channel.
+ *
+ * Entries are kept sorted by id in parallel primitive arrays so lookups are a binary search and
+ * updates never box. Reads and writes happen on different threads (platform thread vs. the SDK
+ * screenshot thread), so every access is synchronized.
+ *
+ * Each entry also keeps its last few timestamped positions. When a screenshot is taken after the
+ * last update, moving entries are extrapolated by their recent velocity (bounded by
+ * {@code maxExtrapolationMs}) and inflated by the expected error, so masks keep up with flings.
+ * The extrapolated rect is joined with the last known bounds, which stay covered.
+ *
+ * A {@link OcclusionHitGrid} follows every update so gestures can be tested against the current
+ * bounds without scanning all entries.
+ *
+ * Instead of the channel, Dart can publish its whole registry through a
+ * {@link SharedOcclusionBuffer}; {@link #applyShared} then replaces the entries with it.
+ */
+final class OcclusionRectStore<R> {
+    static final int HEADER_SIZE = 8;
+    static final int ITEM_SIZE = 25;
+    static final int CLEAR_ALL = -1;
+    static final float REMOVAL = -1f;
+    static final long DEFAULT_MAX_EXTRAPOLATION_MS = 34;
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int HISTORY = 3;
+    private static final float MIN_ERROR_PX = 1f;
+
+    private int[] ids = new int[INITIAL_CAPACITY];
+    private float[] lefts = new float[INITIAL_CAPACITY];
+    private float[] tops = new float[INITIAL_CAPACITY];
+    private float[] rights = new float[INITIAL_CAPACITY];
+    private float[] bottoms = new float[INITIAL_CAPACITY];
+    private byte[] types = new byte[INITIAL_CAPACITY];
+    private int size = 0;
+
+    // Position history, HISTORY slots per entry, oldest first.
+    private long[] sampleTimes = new long[INITIAL_CAPACITY * HISTORY];
+    private float[] sampleLefts = new float[INITIAL_CAPACITY * HISTORY];
+    private float[] sampleTops = new float[INITIAL_CAPACITY * HISTORY];
+    private int[] sampleCounts = new int[INITIAL_CAPACITY];
+
+    private boolean predictionEnabled = true;
+    private long maxExtrapolationMs = DEFAULT_MAX_EXTRAPOLATION_MS;
+
+    private final RectPool<R> rectPool;
+    private final OcclusionHitGrid hitGrid = new OcclusionHitGrid();
+    private final OcclusionHitGrid.Bounds hitBounds = (id, x, y) -> {
+        int index = Arrays.binarySearch(ids, 0, size, id);
+        return index >= 0 && x >= lefts[index] && x < rights[index] && y >= tops[index] && y < bottoms[index];
+    };
+
+    // Set once Dart has pushed at least one batch; older Dart clients never do,
+    // so the plugin keeps using the request round trip for them.
+    private volatile boolean primed = false;
+
+    // seq of the last shared buffer applied, and its ids sorted for the removal pass
+    private int sharedSeq = 0;
+    private int[] sharedIds = new int[INITIAL_CAPACITY];
+
+    OcclusionRectStore(RectOps<R> ops) {
+        rectPool = new RectPool<>(ops);
+    }
+
+    boolean isPrimed() {
+        return primed;
+    }
+
+    synchronized void configurePrediction(boolean enabled, long maxExtrapolationMs) {
+        this.predictionEnabled = enabled;
+        this.maxExtrapolationMs = Math.max(0, maxExtrapolationMs);
+    }
+
+    /**
+     * Decodes one batch message received at {@code nowMs}. Layout (little endian):
+     * header [count:4][reserved:4], then per item [viewId:4][id:4][left:4][top:4][right:4][bottom:4][type:1].
+     * A count of -1 clears the store; left -1 with right and bottom 0, which no real rect has,
+     * removes the item. Ids are unique across views,
+     * so the view id is not kept.
+     */
+    synchronized void applyBatch(ByteBuffer message, long nowMs) {
+        if (message == null) return;
+
+        ByteBuffer buffer = message.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        buffer.rewind();
+        if (buffer.remaining() < HEADER_SIZE) return;
+
+        int count = buffer.getInt();
+        buffer.getInt(); // reserved
+        primed = true;
+
+        if (count == CLEAR_ALL) {
+            size = 0;
+            hitGrid.clear();
+            return;
+        }
+
+        int available = buffer.remaining() / ITEM_SIZE;
+        if (count > available) count = available;
+
+        for (int i = 0; i < count; i++) {
+            buffer.getInt(); // viewId
+            int id = buffer.getInt();
+            float left = buffer.getFloat();
+            float top = buffer.getFloat();
+            float right = buffer.getFloat();
+            float bottom = buffer.getFloat();
+            byte type = buffer.get();
+
+            if (isRemoval(left, right, bottom)) {
+                remove(id);
+            } else {
+                put(id, left, top, right, bottom, type, nowMs);
+            }
+        }
+    }
+
+    /**
+     * Replaces the entries with the snapshot last published in {@code shared}, if it changed since
+     * the previous call. {@code wallNowMs} is the wall clock time matching {@code nowMs}, used to
+     * date the snapshot by when Dart wrote it. Entries are left alone while Dart is not using the
+     * buffer, or when no consistent copy could be read.
+     */
+    synchronized void applyShared(SharedOcclusionBuffer shared, long nowMs, long wallNowMs) {
+        if (shared == null || shared.publishedSeq() == sharedSeq) return;
+
+        int count = shared.read();
+        if (count == SharedOcclusionBuffer.TORN) return;
+        sharedSeq = shared.seq();
+        if (count == SharedOcclusionBuffer.INACTIVE) return;
+        primed = true;
+
+        if (sharedIds.length < count) sharedIds = new int[Math.max(count, sharedIds.length * 2)];
+        for (int i = 0; i < count; i++) {
+            sharedIds[i] = shared.id(i);
+        }
+        Arrays.sort(sharedIds, 0, count);
+        for (int i = size - 1; i >= 0; i--) {
+            if (Arrays.binarySearch(sharedIds, 0, count, ids[i]) < 0) remove(ids[i]);
+        }
+
+        long sampleMs = nowMs - Math.max(0, wallNowMs - shared.writtenAtMs());
+        for (int i = 0; i < count; i++) {
+            int id = shared.id(i);
+            float left = shared.left(i);
+            float top = shared.top(i);
+            float right = shared.right(i);
+            float bottom = shared.bottom(i);
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            // unchanged entries keep their history, as with channel batches
+            if (index >= 0 && lefts[index] == left && tops[index] == top
+                    && rights[index] == right && bottoms[index] == bottom) {
+                continue;
+            }
+            put(id, left, top, right, bottom, shared.type(i), sampleMs);
+        }
+    }
+
+    synchronized void clear() {
+        size = 0;
+        hitGrid.clear();
+        primed = false;
+        sharedSeq = 0;
+    }
+
+    synchronized void trim() {
+        rectPool.trim();
+    }
+
+    /**
+     * Returns true when the pixel-space point lies inside a stored rect, at its last pushed bounds.
+     */
+    synchronized boolean isOccluded(float x, float y) {
+        return size > 0 && hitGrid.hit(x, y, hitBounds);
+    }
+
+    /**
+     * Returns the stored rects in pixel space as of {@code nowMs}, rounded outwards, skipping
+     * empty ones. The returned list is owned by the store's rect pool and reused a few frames later.
+     */
+    synchronized List<R> snapshot(long nowMs) {
+        List<R> rects = rectPool.begin();
+        for (int i = 0; i < size; i++) {
+            int count = sampleCounts[i];
+            int last = i * HISTORY + count - 1;
+            long elapsed = nowMs - sampleTimes[last];
+
+            if (!predictionEnabled || count < 2 || elapsed <= 0 || elapsed > maxExtrapolationMs) {
+                rectPool.addOutward(lefts[i], tops[i], rights[i], bottoms[i]);
+                continue;
+            }
+
+            // px per ms over the most recent interval
+            int previous = last - 1;
+            long interval = sampleTimes[last] - sampleTimes[previous];
+            if (interval <= 0) {
+                rectPool.addOutward(lefts[i], tops[i], rights[i], bottoms[i]);
+                continue;
+            }
+            float velocityX = (sampleLefts[last] - sampleLefts[previous]) / interval;
+            float velocityY = (sampleTops[last] - sampleTops[previous]) / interval;
+
+            // Expected error: how much the velocity changed between the last two intervals,
+            // or half the extrapolated distance when there is only one interval.
+            float errorX;
+            float errorY;
+            long earlierInterval = count > 2 ? sampleTimes[previous] - sampleTimes[previous - 1] : 0;
+            if (earlierInterval > 0) {
+                float earlierX = (sampleLefts[previous] - sampleLefts[previous - 1]) / earlierInterval;
+                float earlierY = (sampleTops[previous] - sampleTops[previous - 1]) / earlierInterval;
+                errorX = Math.abs(velocityX - earlierX) * elapsed;
+                errorY = Math.abs(velocityY - earlierY) * elapsed;
+            } else {
+                errorX = Math.abs(velocityX) * elapsed / 2f;
+                errorY = Math.abs(velocityY) * elapsed / 2f;
+            }
+            errorX = Math.max(errorX, MIN_ERROR_PX);
+            errorY = Math.max(errorY, MIN_ERROR_PX);
+
+            // Dart only pushes changes, so a stopped fling sends nothing; the mask keeps covering
+            // the last known bounds and prediction can only grow it.
+            float dx = velocityX * elapsed;
+            float dy = velocityY * elapsed;
+            rectPool.addOutward(
+                    Math.min(lefts[i], lefts[i] + dx - errorX),
+                    Math.min(tops[i], tops[i] + dy - errorY),
+                    Math.max(rights[i], rights[i] + dx + errorX),
+                    Math.max(bottoms[i], bottoms[i] + dy + errorY));
+        }
+        return rects;
+    }
+
+    private void put(int id, float left, float top, float right, float bottom, byte type, long nowMs) {
+        int index = Arrays.binarySearch(ids, 0, size, id);
+        if (index < 0) {
+            index = -(index + 1);
+            ensureCapacity(size + 1);
+            int tail = size - index;
+            if (tail > 0) {
+                move(index, index + 1, tail);
+            }
+            size++;
+            ids[index] = id;
+            sampleCounts[index] = 0;
+            hitGrid.add(id, left, top, right, bottom);
+        } else {
+            hitGrid.move(id, lefts[index], tops[index], rights[index], bottoms[index], left, top, right, bottom);
+        }
+        lefts[index] = left;
+        tops[index] = top;
+        rights[index] = right;
+        bottoms[index] = bottom;
+        types[index] = type;
+        addSample(index, left, top, nowMs);
+    }
+
+    private static boolean isRemoval(float left, float right, float bottom) {
+        return left == REMOVAL && right == 0f && bottom == 0f;
+    }
+
+    private void addSample(int index, float left, float top, long nowMs) {
+        int base = index * HISTORY;
+        int count = sampleCounts[index];
+        if (count == HISTORY) {
+            System.arraycopy(sampleTimes, base + 1, sampleTimes, base, HISTORY - 1);
+            System.arraycopy(sampleLefts, base + 1, sampleLefts, base, HISTORY - 1);
+            System.arraycopy(sampleTops, base + 1, sampleTops, base, HISTORY - 1);
+            count--;
+        }
+        sampleTimes[base + count] = nowMs;
+        sampleLefts[base + count] = left;
+        sampleTops[base + count] = top;
+        sampleCounts[index] = count + 1;
+    }
+
+    private void remove(int id) {
+        int index = Arrays.binarySearch(ids, 0, size, id);
+        if (index < 0) return;
+
+        hitGrid.remove(id, lefts[index], tops[index], rights[index], bottoms[index]);
+        int tail = size - index - 1;
+        if (tail > 0) {
+            move(index + 1, index, tail);
+        }
+        size--;
+    }
+
+    private void move(int from, int to, int count) {
+        System.arraycopy(ids, from, ids, to, count);
+        System.arraycopy(lefts, from, lefts, to, count);
+        System.arraycopy(tops, from, tops, to, count);
+        System.arraycopy(rights, from, rights, to, count);
+        System.arraycopy(bottoms, from, bottoms, to, count);
+        System.arraycopy(types, from, types, to, count);
+        System.arraycopy(sampleCounts, from, sampleCounts, to, count);
+        System.arraycopy(sampleTimes, from * HISTORY, sampleTimes, to * HISTORY, count * HISTORY);
+        System.arraycopy(sampleLefts, from * HISTORY, sampleLefts, to * HISTORY, count * HISTORY);
+        System.arraycopy(sampleTops, from * HISTORY, sampleTops, to * HISTORY, count * HISTORY);
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= ids.length) return;
+
+        int capacity = Math.max(required, ids.length * 2);
+        ids = Arrays.copyOf(ids, capacity);
+        lefts = Arrays.copyOf(lefts, capacity);
+        tops = Arrays.copyOf(tops, capacity);
+        rights = Arrays.copyOf(rights, capacity);
+        bottoms = Arrays.copyOf(bottoms, capacity);
+        types = Arrays.copyOf(types, capacity);
+        sampleCounts = Arrays.copyOf(sampleCounts, capacity);
+        sampleTimes = Arrays.copyOf(sampleTimes, capacity * HISTORY);
+        sampleLefts = Arrays.copyOf(sampleLefts, capacity * HISTORY);
+        sampleTops = Arrays.copyOf(sampleTops, capacity * HISTORY);
+    }
+}
@@ -0,0 +1,116 @@
+package com.uxcam.flutteruxcam;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single-flight front for the Dart occlusion round trip.
+ *
+ * Requests join the open flight if there is one; otherwise a new flight is sent to Dart on the
+ * next Choreographer frame. Every waiter of a flight receives the same result, so at most one
+ * Dart query is outstanding and at most one is started per vsync.
+ */
+final class OcclusionRequestCoalescer<R> {
+    // A flight Dart has not answered for this long no longer absorbs new requests.
+    private static final long STALE_FLIGHT_MS = 1000;
+
+    interface Waiter<R> {
+        void complete(List<R> rects);
+
+        void fail();
+    }
+
+    interface Dispatcher<R> {
+        /**
+         * Sends the query to Dart on the main thread and reports back through {@link #finish}.
+         */
+        void dispatch(Flight<R> flight);
+    }
+
+    static final class Flight<R> {
+        private final ArrayList<Waiter<R>> waiters = new ArrayList<>();
+        private long dispatchedAtMs = 0;
+        private boolean finished = false;
+    }
+
+    private final Platform platform;
+    private final Dispatcher<R> dispatcher;
+    private final Object lock = new Object();
+    private Flight<R> open;
+
+    private final AtomicLong dispatchCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+
+    OcclusionRequestCoalescer(Platform platform, Dispatcher<R> dispatcher) {
+        this.platform = platform;
+        this.dispatcher = dispatcher;
+    }
+
+    void enqueue(Waiter<R> waiter) {
+        final Flight<R> flight;
+        synchronized (lock) {
+            if (open != null && !isStale(open)) {
+                open.waiters.add(waiter);
+                coalescedCount.incrementAndGet();
+                return;
+            }
+            flight = new Flight<>();
+            flight.waiters.add(waiter);
+            open = flight;
+        }
+
+        platform.runOnNextFrame(() -> {
+            synchronized (lock) {
+                if (flight.finished) return;
+                flight.dispatchedAtMs = platform.uptimeMillis();
+            }
+            dispatchCount.incrementAndGet();
+            dispatcher.dispatch(flight);
+        });
+    }
+
+    /**
+     * Completes every waiter of {@code flight}; {@code rects} of null reports a failure. Only
+     * the first call for a flight has any effect.
+     */
+    void finish(Flight<R> flight, List<R> rects) {
+        synchronized (lock) {
+            if (flight.finished) return;
+            flight.finished = true;
+            if (open == flight) open = null;
+        }
+
+        // no waiter can join once the flight is closed
+        for (int i = 0, n = flight.waiters.size(); i < n; i++) {
+            Waiter<R> waiter = flight.waiters.get(i);
+            if (rects == null) {
+                waiter.fail();
+            } else {
+                waiter.complete(rects);
+            }
+        }
+    }
+
+    /**
+     * Fails the open flight, if any, when the engine goes away before Dart answers.
+     */
+    void abandon() {
+        Flight<R> flight;
+        synchronized (lock) {
+            flight = open;
+        }
+        if (flight != null) finish(flight, null);
+    }
+
+    void appendStats(Map<String, Object> stats) {
+        stats.put("dispatches", dispatchCount.get());
+        stats.put("coalesced", coalescedCount.get());
+    }
+
+    private boolean isStale(Flight<R> flight) {
+        return flight.dispatchedAtMs != 0
+                && platform.uptimeMillis() - flight.dispatchedAtMs > STALE_FLIGHT_MS;
+    }
+}
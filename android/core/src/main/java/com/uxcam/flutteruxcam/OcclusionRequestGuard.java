@@ -0,0 +1,110 @@
+package com.uxcam.flutteruxcam;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounds how long a screenshot waits for Dart to answer an occlusion request.
+ *
+ * Each request is completed exactly once: with the Dart result, or with the {@link Fallback}
+ * rects when the deadline passes or the channel fails. Falling back to the last known rects
+ * instead of an empty list keeps sensitive widgets masked while Dart is busy.
+ */
+final class OcclusionRequestGuard<R> {
+    static final long DEFAULT_DEADLINE_MS = 150;
+
+    interface Fallback<R> {
+        /**
+         * Returns the last known rects in a list the caller may change.
+         */
+        List<R> lastKnownGoodRects();
+    }
+
+    // Deadlines run on their own thread so a blocked main thread cannot hold them back.
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "uxcam-occlusion-deadline");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Fallback<R> fallback;
+    private volatile long deadlineMs = DEFAULT_DEADLINE_MS;
+
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong fallbackCount = new AtomicLong();
+
+    OcclusionRequestGuard(Fallback<R> fallback) {
+        this.fallback = fallback;
+    }
+
+    /**
+     * Sets the per-request deadline. Zero or less waits for Dart indefinitely.
+     */
+    void setDeadlineMs(long deadlineMs) {
+        this.deadlineMs = deadlineMs;
+    }
+
+    Pending begin(OcclusionDelegate.Callback<R> callback) {
+        requestCount.incrementAndGet();
+        Pending pending = new Pending(callback);
+        long deadline = deadlineMs;
+        if (deadline > 0) {
+            pending.timeout = TIMER.schedule(pending::expire, deadline, TimeUnit.MILLISECONDS);
+        }
+        return pending;
+    }
+
+    Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("deadlineMs", deadlineMs);
+        stats.put("requests", requestCount.get());
+        stats.put("timeouts", timeoutCount.get());
+        stats.put("fallbacks", fallbackCount.get());
+        return stats;
+    }
+
+    final class Pending implements OcclusionRequestCoalescer.Waiter<R> {
+        private final OcclusionDelegate.Callback<R> callback;
+        private final AtomicBoolean done = new AtomicBoolean(false);
+        private volatile ScheduledFuture<?> timeout;
+
+        private Pending(OcclusionDelegate.Callback<R> callback) {
+            this.callback = callback;
+        }
+
+        @Override
+        public void complete(List<R> rects) {
+            if (!done.compareAndSet(false, true)) return;
+            cancelTimeout();
+            callback.onRectsReady(rects);
+        }
+
+        @Override
+        public void fail() {
+            if (!done.compareAndSet(false, true)) return;
+            cancelTimeout();
+            fallbackCount.incrementAndGet();
+            callback.onRectsReady(fallback.lastKnownGoodRects());
+        }
+
+        private void expire() {
+            if (!done.compareAndSet(false, true)) return;
+            timeoutCount.incrementAndGet();
+            fallbackCount.incrementAndGet();
+            callback.onRectsReady(fallback.lastKnownGoodRects());
+        }
+
+        private void cancelTimeout() {
+            ScheduledFuture<?> future = timeout;
+            if (future != null) future.cancel(false);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.uxcam.flutteruxcam;
+
+/**
+ * The few runtime services the core classes need: clocks, frame scheduling and logging.
+ *
+ * The Android plugin provides them from {@code SystemClock}, {@code Choreographer} and
+ * {@code Log}; {@link #JVM} serves plain JVM runs such as the benchmarks.
+ */
+interface Platform {
+    /**
+     * Monotonic milliseconds that do not advance in deep sleep.
+     */
+    long uptimeMillis();
+
+    /**
+     * Monotonic nanoseconds for measuring durations.
+     */
+    long elapsedNanos();
+
+    /**
+     * Runs {@code task} on the UI thread when the next frame starts.
+     */
+    void runOnNextFrame(Runnable task);
+
+    void logInfo(String message);
+
+    void logError(String message, Throwable error);
+
+    Platform JVM = new Platform() {
+        @Override
+        public long uptimeMillis() {
+            return System.nanoTime() / 1_000_000;
+        }
+
+        @Override
+        public long elapsedNanos() {
+            return System.nanoTime();
+        }
+
+        @Override
+        public void runOnNextFrame(Runnable task) {
+            task.run();
+        }
+
+        @Override
+        public void logInfo(String message) {
+            System.out.println(message);
+        }
+
+        @Override
+        public void logError(String message, Throwable error) {
+            System.err.println(message);
+            if (error != null) error.printStackTrace();
+        }
+    };
+}
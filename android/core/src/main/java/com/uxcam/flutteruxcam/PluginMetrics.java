@@ -0,0 +1,184 @@
+package com.uxcam.flutteruxcam;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Runtime cost counters for the plugin: method call handling time, occlusion request round
+ * trips, rects per frame and rect parse failures.
+ *
+ * Recording is lock-free and every entry point returns after one volatile read while metrics
+ * are disabled, which is the default. Latencies go into fixed microsecond buckets.
+ */
+final class PluginMetrics {
+    // upper bounds, inclusive; the last bucket counts everything above
+    static final long[] LATENCY_BOUNDS_US = {
+            10, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 25000, 50000, 100000, 250000
+    };
+    static final long[] RECT_COUNT_BOUNDS = {0, 1, 2, 4, 8, 16, 32, 64};
+
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "uxcam-metrics-dump");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Platform platform;
+    private volatile boolean enabled = false;
+    private ScheduledFuture<?> dump;
+
+    private final ConcurrentHashMap<String, Histogram> methods = new ConcurrentHashMap<>();
+    private final Histogram occlusionRoundTrip = new Histogram(LATENCY_BOUNDS_US);
+    private final Histogram rectsPerFrame = new Histogram(RECT_COUNT_BOUNDS);
+    private final AtomicLong parseFailures = new AtomicLong();
+
+    PluginMetrics(Platform platform) {
+        this.platform = platform;
+    }
+
+    /**
+     * Turns recording on or off and (re)starts the logcat dump; a {@code dumpIntervalMs} of zero
+     * or less disables the dump. Counters are kept across calls.
+     */
+    synchronized void configure(boolean enabled, long dumpIntervalMs) {
+        this.enabled = enabled;
+        if (dump != null) {
+            dump.cancel(false);
+            dump = null;
+        }
+        if (enabled && dumpIntervalMs > 0) {
+            dump = TIMER.scheduleAtFixedRate(
+                    () -> platform.logInfo("[Metrics] " + snapshot()),
+                    dumpIntervalMs, dumpIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    void reset() {
+        methods.clear();
+        occlusionRoundTrip.reset();
+        rectsPerFrame.reset();
+        parseFailures.set(0);
+    }
+
+    /**
+     * Returns a start timestamp for {@link #recordMethod}, or -1 when disabled.
+     */
+    long startTimer() {
+        return enabled ? platform.elapsedNanos() : -1;
+    }
+
+    void recordMethod(String method, long startNanos) {
+        if (startNanos < 0) return;
+        Histogram histogram = methods.get(method);
+        if (histogram == null) {
+            Histogram created = new Histogram(LATENCY_BOUNDS_US);
+            histogram = methods.putIfAbsent(method, created);
+            if (histogram == null) histogram = created;
+        }
+        histogram.record(elapsedMicros(startNanos));
+    }
+
+    void recordOcclusionRoundTrip(long startNanos) {
+        if (startNanos < 0) return;
+        occlusionRoundTrip.record(elapsedMicros(startNanos));
+    }
+
+    void recordRectsPerFrame(int count) {
+        if (!enabled) return;
+        rectsPerFrame.record(count);
+    }
+
+    void recordParseFailure() {
+        if (!enabled) return;
+        parseFailures.incrementAndGet();
+    }
+
+    Map<String, Object> snapshot() {
+        Map<String, Object> methodStats = new HashMap<>();
+        for (Map.Entry<String, Histogram> entry : methods.entrySet()) {
+            methodStats.put(entry.getKey(), entry.getValue().snapshot());
+        }
+
+        Map<String, Object> snapshot = new HashMap<>();
+        snapshot.put("enabled", enabled);
+        snapshot.put("methods", methodStats);
+        snapshot.put("occlusionRoundTrip", occlusionRoundTrip.snapshot());
+        snapshot.put("rectsPerFrame", rectsPerFrame.snapshot());
+        snapshot.put("parseFailures", parseFailures.get());
+        snapshot.put("latencyBoundsUs", toList(LATENCY_BOUNDS_US));
+        snapshot.put("rectCountBounds", toList(RECT_COUNT_BOUNDS));
+        return snapshot;
+    }
+
+    private long elapsedMicros(long startNanos) {
+        return (platform.elapsedNanos() - startNanos) / 1000;
+    }
+
+    private static List<Long> toList(long[] values) {
+        List<Long> list = new ArrayList<>(values.length);
+        for (long value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+
+    private static final class Histogram {
+        private final long[] bounds;
+        private final AtomicLongArray buckets;
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sum = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        Histogram(long[] bounds) {
+            this.bounds = bounds;
+            this.buckets = new AtomicLongArray(bounds.length + 1);
+        }
+
+        void record(long value) {
+            int bucket = 0;
+            while (bucket < bounds.length && value > bounds[bucket]) {
+                bucket++;
+            }
+            buckets.incrementAndGet(bucket);
+            count.incrementAndGet();
+            sum.addAndGet(value);
+
+            long currentMax = max.get();
+            while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+                currentMax = max.get();
+            }
+        }
+
+        void reset() {
+            for (int i = 0; i < buckets.length(); i++) {
+                buckets.set(i, 0);
+            }
+            count.set(0);
+            sum.set(0);
+            max.set(0);
+        }
+
+        Map<String, Object> snapshot() {
+            List<Long> counts = new ArrayList<>(buckets.length());
+            for (int i = 0; i < buckets.length(); i++) {
+                counts.add(buckets.get(i));
+            }
+
+            Map<String, Object> snapshot = new HashMap<>();
+            snapshot.put("count", count.get());
+            snapshot.put("sum", sum.get());
+            snapshot.put("max", max.get());
+            snapshot.put("buckets", counts);
+            return snapshot;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.uxcam.flutteruxcam;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Write-combining layer in front of the SDK's identity, property and screen name setters.
+ *
+ * The last value per key is remembered for the current session; setting the same value again
+ * is dropped. Changed identity and property values are held until {@link #flush}, on whichever
+ * thread calls it, and only the latest value per key is written. Callers flush before any other
+ * call that may depend on them, so ordering is kept. A changed screen name is written straight
+ * away, after anything pending, since events logged next are attributed to the screen it names.
+ * The remembered values are forgotten whenever the session changes; session scoped ones and the
+ * screen name also when the app goes to the background, after which the SDK may start a new
+ * session on its own.
+ */
+final class PropertyWriteCache {
+    static final Set<String> METHODS = new HashSet<>(Arrays.asList(
+            "setUserIdentity",
+            "setUserProperty",
+            "setSessionProperty",
+            "tagScreenName"
+    ));
+
+    interface Writer {
+        void setUserIdentity(String userIdentity);
+
+        void setUserProperty(String key, String value);
+
+        void setSessionProperty(String key, String value);
+
+        void tagScreenName(String screenName);
+    }
+
+    private final Writer writer;
+
+    private final Map<String, String> userValues = new HashMap<>();
+    private final Map<String, String> sessionValues = new HashMap<>();
+    private final LinkedHashMap<String, String> pendingUser = new LinkedHashMap<>();
+    private final LinkedHashMap<String, String> pendingSession = new LinkedHashMap<>();
+
+    private boolean identityKnown = false;
+    private String identity;
+    private boolean identityPending = false;
+
+    private boolean screenKnown = false;
+    private String screenName;
+
+    private volatile boolean dirty = false;
+
+    private long hitCount = 0;
+    private long missCount = 0;
+    private long flushCount = 0;
+
+    PropertyWriteCache(Writer writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Returns true when the write changed something and a flush is now pending.
+     */
+    synchronized boolean setUserIdentity(String userIdentity) {
+        if (identityKnown && Objects.equals(identity, userIdentity)) return hit();
+        identityKnown = true;
+        identity = userIdentity;
+        identityPending = true;
+        return miss();
+    }
+
+    synchronized boolean setUserProperty(String key, String value) {
+        if (userValues.containsKey(key) && Objects.equals(userValues.get(key), value)) return hit();
+        userValues.put(key, value);
+        pendingUser.put(key, value);
+        return miss();
+    }
+
+    synchronized boolean setSessionProperty(String key, String value) {
+        if (sessionValues.containsKey(key) && Objects.equals(sessionValues.get(key), value)) return hit();
+        sessionValues.put(key, value);
+        pendingSession.put(key, value);
+        return miss();
+    }
+
+    /**
+     * Writes the screen name unless it is unchanged, after any pending writes. Main thread only.
+     */
+    synchronized boolean tagScreenName(String name) {
+        if (screenKnown && Objects.equals(screenName, name)) return hit();
+        screenKnown = true;
+        screenName = name;
+        missCount++;
+        flush();
+        writer.tagScreenName(name);
+        return true;
+    }
+
+    /**
+     * Writes pending identity, user and session properties on the calling thread.
+     */
+    void flush() {
+        if (!dirty) return;
+        synchronized (this) {
+            if (!dirty) return;
+            dirty = false;
+            flushCount++;
+
+            if (identityPending) {
+                identityPending = false;
+                writer.setUserIdentity(identity);
+            }
+            for (Map.Entry<String, String> entry : pendingUser.entrySet()) {
+                writer.setUserProperty(entry.getKey(), entry.getValue());
+            }
+            pendingUser.clear();
+            for (Map.Entry<String, String> entry : pendingSession.entrySet()) {
+                writer.setSessionProperty(entry.getKey(), entry.getValue());
+            }
+            pendingSession.clear();
+        }
+    }
+
+    /**
+     * Writes anything pending, then forgets every remembered value. Called when the session changes.
+     */
+    synchronized void reset() {
+        resetSession();
+        userValues.clear();
+        identityKnown = false;
+        identity = null;
+    }
+
+    /**
+     * Writes anything pending, then forgets the session properties and the screen name, which a
+     * session the SDK starts by itself does not carry over.
+     */
+    synchronized void resetSession() {
+        flush();
+        sessionValues.clear();
+        screenKnown = false;
+        screenName = null;
+    }
+
+    synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("flushes", flushCount);
+        return stats;
+    }
+
+    private boolean hit() {
+        hitCount++;
+        return false;
+    }
+
+    private boolean miss() {
+        missCount++;
+        dirty = true;
+        return true;
+    }
+}
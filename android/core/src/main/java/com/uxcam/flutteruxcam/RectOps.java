@@ -0,0 +1,24 @@
+package com.uxcam.flutteruxcam;
+
+/**
+ * Access to the rect type handed to the SDK, so the core works on {@code android.graphics.Rect}
+ * without depending on it. Coordinates are integer pixels, right and bottom exclusive.
+ */
+interface RectOps<R> {
+    R create(int left, int top, int right, int bottom);
+
+    void set(R rect, int left, int top, int right, int bottom);
+
+    int left(R rect);
+
+    int top(R rect);
+
+    int right(R rect);
+
+    int bottom(R rect);
+
+    /**
+     * Grows {@code rect} to also cover {@code other}.
+     */
+    void union(R rect, R other);
+}
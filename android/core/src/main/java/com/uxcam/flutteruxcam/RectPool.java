@@ -0,0 +1,83 @@
+package com.uxcam.flutteruxcam;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reusable rect storage for occlusion frames.
+ *
+ * A few generations of lists are rotated so the list handed to the SDK for one frame is not
+ * rewritten while it may still be read; once every generation has grown to the largest frame,
+ * decoding a frame allocates nothing. Not thread safe, each caller owns its pool.
+ */
+final class RectPool<R> {
+    private static final int GENERATIONS = 3;
+
+    private final RectOps<R> ops;
+    private final List<Generation<R>> generations = new ArrayList<>(GENERATIONS);
+    private int index = -1;
+    private Generation<R> current;
+
+    RectPool(RectOps<R> ops) {
+        this.ops = ops;
+        for (int i = 0; i < GENERATIONS; i++) {
+            generations.add(new Generation<R>());
+        }
+    }
+
+    /**
+     * Starts a new frame and returns the (empty) list {@link #add} fills.
+     */
+    List<R> begin() {
+        index = (index + 1) % GENERATIONS;
+        current = generations.get(index);
+        current.output.clear();
+        current.used = 0;
+        return current.output;
+    }
+
+    /**
+     * Appends a rect to the current frame; empty rects are dropped.
+     */
+    void add(int left, int top, int right, int bottom) {
+        if (right - left <= 0 || bottom - top <= 0) return;
+
+        R rect;
+        if (current.used < current.owned.size()) {
+            rect = current.owned.get(current.used);
+            ops.set(rect, left, top, right, bottom);
+        } else {
+            rect = ops.create(left, top, right, bottom);
+            current.owned.add(rect);
+        }
+        current.used++;
+        current.output.add(rect);
+    }
+
+    /**
+     * Appends a rect given in fractional pixels, rounded outwards.
+     */
+    void addOutward(double left, double top, double right, double bottom) {
+        add((int) Math.floor(left), (int) Math.floor(top), (int) Math.ceil(right), (int) Math.ceil(bottom));
+    }
+
+    /**
+     * Releases pooled rects beyond what each generation holds right now, for memory pressure.
+     * The pool grows back on demand.
+     */
+    void trim() {
+        for (Generation<R> generation : generations) {
+            for (int i = generation.owned.size() - 1; i >= generation.used; i--) {
+                generation.owned.remove(i);
+            }
+            generation.owned.trimToSize();
+            generation.output.trimToSize();
+        }
+    }
+
+    private static final class Generation<R> {
+        final ArrayList<R> owned = new ArrayList<>();
+        final ArrayList<R> output = new ArrayList<>();
+        int used;
+    }
+}
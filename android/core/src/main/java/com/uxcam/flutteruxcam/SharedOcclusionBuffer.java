@@ -0,0 +1,189 @@
+package com.uxcam.flutteruxcam;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Direct memory region shared with the Dart occlusion registry, which writes the full set of
+ * occlusion rects into it instead of sending batches over {@code uxcam_occlusion_v2}.
+ *
+ * Layout (little endian): header [magic:4][version:4][slots:4][seq:4], then two buffers, each
+ * [seq:4][count:4][writtenAtMs:8][checksum:4][reserved:4] followed by {@code slots} items of
+ * [viewId:4][id:4][left:4][top:4][right:4][bottom:4][type:4]. Dart fills the buffer not in use,
+ * {@code seq & 1}, and then publishes it by storing its seq in the header. A count of -1 means
+ * Dart is using the channel instead, e.g. because there are more rects than slots.
+ *
+ * Dart and Java share no memory fences, so a read is only accepted when the buffer's seq is the
+ * same before and after copying it and the checksum matches; otherwise it is retried a few times.
+ * The item accessors return the last read copy.
+ */
+final class SharedOcclusionBuffer {
+    static final int MAGIC = 0x424f5855; // "UXOB"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int BUFFER_HEADER_SIZE = 24;
+    static final int SLOT_SIZE = 28;
+    static final int SLOT_WORDS = SLOT_SIZE / 4;
+    static final int MAX_SLOTS = 4096;
+    static final int SEQ_OFFSET = 12;
+
+    static final int INACTIVE = -1;
+    static final int TORN = -2;
+
+    private static final int READ_ATTEMPTS = 3;
+
+    private final ByteBuffer buffer;
+    private final int slots;
+    private final int stride;
+    private final int[] words;
+    private int seq = 0;
+    private long writtenAtMs = 0;
+
+    private long readCount = 0;
+    private long tornCount = 0;
+    private long inactiveCount = 0;
+
+    private SharedOcclusionBuffer(ByteBuffer buffer, int slots) {
+        this.buffer = buffer;
+        this.slots = slots;
+        this.stride = BUFFER_HEADER_SIZE + slots * SLOT_SIZE;
+        this.words = new int[slots * SLOT_WORDS];
+    }
+
+    static SharedOcclusionBuffer allocate(int slots) {
+        slots = Math.max(1, Math.min(slots, MAX_SLOTS));
+        ByteBuffer buffer = ByteBuffer.allocateDirect(size(slots)).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(8, slots);
+        buffer.putInt(SEQ_OFFSET, 0);
+        return new SharedOcclusionBuffer(buffer, slots);
+    }
+
+    static int size(int slots) {
+        return HEADER_SIZE + 2 * (BUFFER_HEADER_SIZE + slots * SLOT_SIZE);
+    }
+
+    /**
+     * The direct buffer Dart writes into; it must stay reachable for as long as Dart holds its address.
+     */
+    ByteBuffer buffer() {
+        return buffer;
+    }
+
+    int slots() {
+        return slots;
+    }
+
+    int publishedSeq() {
+        return buffer.getInt(SEQ_OFFSET);
+    }
+
+    /**
+     * Marks nothing as published, for a new Dart writer taking over, e.g. after a hot restart.
+     */
+    void reset() {
+        buffer.putInt(SEQ_OFFSET, 0);
+    }
+
+    /**
+     * Copies the published buffer. Returns its item count, {@link #INACTIVE} when Dart is not
+     * using the buffer, or {@link #TORN} when no consistent copy could be made.
+     */
+    synchronized int read() {
+        for (int attempt = 0; attempt < READ_ATTEMPTS; attempt++) {
+            int published = publishedSeq();
+            if (published == 0) {
+                seq = 0;
+                inactiveCount++;
+                return INACTIVE;
+            }
+            int base = HEADER_SIZE + (published & 1) * stride;
+            if (buffer.getInt(base) != published) continue;
+
+            int count = buffer.getInt(base + 4);
+            long writtenAt = buffer.getLong(base + 8);
+            int checksum = buffer.getInt(base + 16);
+            if (count < INACTIVE || count > slots) continue;
+
+            int hash = checksum(published, count, writtenAt);
+            int items = Math.max(count, 0) * SLOT_WORDS;
+            int offset = base + BUFFER_HEADER_SIZE;
+            for (int i = 0; i < items; i++) {
+                int word = buffer.getInt(offset + i * 4);
+                words[i] = word;
+                hash = 31 * hash + word;
+            }
+            if (buffer.getInt(base) != published || hash != checksum) continue;
+
+            seq = published;
+            writtenAtMs = writtenAt;
+            readCount++;
+            if (count == INACTIVE) inactiveCount++;
+            return count;
+        }
+        tornCount++;
+        return TORN;
+    }
+
+    /**
+     * Seq of the last successful {@link #read}.
+     */
+    int seq() {
+        return seq;
+    }
+
+    /**
+     * Wall clock time at which Dart wrote the last read buffer.
+     */
+    long writtenAtMs() {
+        return writtenAtMs;
+    }
+
+    int id(int index) {
+        return words[index * SLOT_WORDS + 1];
+    }
+
+    float left(int index) {
+        return Float.intBitsToFloat(words[index * SLOT_WORDS + 2]);
+    }
+
+    float top(int index) {
+        return Float.intBitsToFloat(words[index * SLOT_WORDS + 3]);
+    }
+
+    float right(int index) {
+        return Float.intBitsToFloat(words[index * SLOT_WORDS + 4]);
+    }
+
+    float bottom(int index) {
+        return Float.intBitsToFloat(words[index * SLOT_WORDS + 5]);
+    }
+
+    byte type(int index) {
+        return (byte) words[index * SLOT_WORDS + 6];
+    }
+
+    synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("slots", slots);
+        stats.put("seq", seq);
+        stats.put("reads", readCount);
+        stats.put("tornReads", tornCount);
+        stats.put("inactiveReads", inactiveCount);
+        return stats;
+    }
+
+    /**
+     * Checksum seed over the buffer header; each item word w is then folded in as {@code 31 * h + w}.
+     */
+    static int checksum(int seq, int count, long writtenAtMs) {
+        int hash = seq;
+        hash = 31 * hash + count;
+        hash = 31 * hash + (int) writtenAtMs;
+        hash = 31 * hash + (int) (writtenAtMs >>> 32);
+        return hash;
+    }
+}
@@ -0,0 +1,216 @@
+package com.uxcam.flutteruxcam;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs uploads of pending sessions when the device allows it, instead of when they are asked for.
+ *
+ * Upload requests are queued, up to {@code maxBacklog} of them with the oldest evicted beyond
+ * that, and served together by one upload run once the configured conditions hold: unmetered
+ * network, charging, and the app idle in the background. Conditions are checked again every
+ * {@link #CHECK_INTERVAL_MS} while requests wait, and straight away on {@link #poke}. A run
+ * counts as successful when the pending session count has dropped {@link #VERIFY_DELAY_MS}
+ * later; otherwise the batch is requeued and retried with exponential backoff.
+ */
+final class UploadScheduler {
+    static final int DEFAULT_MAX_BACKLOG = 16;
+    static final long CHECK_INTERVAL_MS = 60_000;
+    static final long VERIFY_DELAY_MS = 30_000;
+    static final long BASE_BACKOFF_MS = 30_000;
+    static final long MAX_BACKOFF_MS = 60 * 60_000;
+
+    interface Conditions {
+        boolean isConnected();
+
+        boolean isUnmetered();
+
+        boolean isCharging();
+
+        boolean isIdle();
+    }
+
+    /**
+     * Stand-in for the SDK's pending session store.
+     */
+    interface Uploader {
+        int pendingSessions();
+
+        /**
+         * Starts uploading every pending session; returns false when that cannot happen now.
+         */
+        boolean startUpload();
+    }
+
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "uxcam-upload");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Platform platform;
+    private final Conditions conditions;
+    private final Uploader uploader;
+    private final ScheduledExecutorService timer;
+
+    private boolean requireUnmetered = true;
+    private boolean requireCharging = false;
+    private boolean requireIdle = true;
+    private int maxBacklog = DEFAULT_MAX_BACKLOG;
+
+    // uptime of each queued request, oldest first
+    private final ArrayDeque<Long> requests = new ArrayDeque<>();
+    private ScheduledFuture<?> check;
+    private boolean uploading = false;
+    private int consecutiveFailures = 0;
+    private long nextAttemptAtMs = 0;
+    private String lastOutcome = "none";
+
+    private long requestedCount = 0;
+    private long evictedCount = 0;
+    private long waitCount = 0;
+    private long runCount = 0;
+    private long successCount = 0;
+    private long failureCount = 0;
+    private long uploadedSessions = 0;
+
+    UploadScheduler(Platform platform, Conditions conditions, Uploader uploader) {
+        this(platform, conditions, uploader, TIMER);
+    }
+
+    UploadScheduler(Platform platform, Conditions conditions, Uploader uploader, ScheduledExecutorService timer) {
+        this.platform = platform;
+        this.conditions = conditions;
+        this.uploader = uploader;
+        this.timer = timer;
+    }
+
+    synchronized void configure(boolean requireUnmetered, boolean requireCharging, boolean requireIdle, int maxBacklog) {
+        this.requireUnmetered = requireUnmetered;
+        this.requireCharging = requireCharging;
+        this.requireIdle = requireIdle;
+        this.maxBacklog = Math.max(1, maxBacklog);
+        trimBacklog();
+        if (!requests.isEmpty()) schedule(0);
+    }
+
+    synchronized void request() {
+        requestedCount++;
+        requests.addLast(platform.uptimeMillis());
+        trimBacklog();
+        schedule(0);
+    }
+
+    /**
+     * Checks the conditions again now, e.g. after the app went to the background.
+     */
+    synchronized void poke() {
+        if (!requests.isEmpty() && !uploading) schedule(0);
+    }
+
+    synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("queued", requests.size());
+        stats.put("requested", requestedCount);
+        stats.put("evicted", evictedCount);
+        stats.put("waits", waitCount);
+        stats.put("runs", runCount);
+        stats.put("succeeded", successCount);
+        stats.put("failed", failureCount);
+        stats.put("uploadedSessions", uploadedSessions);
+        stats.put("consecutiveFailures", consecutiveFailures);
+        stats.put("nextAttemptInMs", Math.max(0, nextAttemptAtMs - platform.uptimeMillis()));
+        stats.put("uploading", uploading);
+        stats.put("lastOutcome", lastOutcome);
+        return stats;
+    }
+
+    private void trimBacklog() {
+        while (requests.size() > maxBacklog) {
+            requests.removeFirst();
+            evictedCount++;
+        }
+    }
+
+    private void schedule(long delayMs) {
+        if (check != null) check.cancel(false);
+        check = timer.schedule(this::attempt, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void attempt() {
+        check = null;
+        if (requests.isEmpty() || uploading) return;
+
+        long now = platform.uptimeMillis();
+        if (now < nextAttemptAtMs) {
+            schedule(nextAttemptAtMs - now);
+            return;
+        }
+
+        String blocker = blocker();
+        if (blocker != null) {
+            waitCount++;
+            lastOutcome = "waiting for " + blocker;
+            schedule(CHECK_INTERVAL_MS);
+            return;
+        }
+
+        final int pending = uploader.pendingSessions();
+        if (pending == 0) {
+            requests.clear();
+            lastOutcome = "nothing pending";
+            return;
+        }
+        if (!uploader.startUpload()) {
+            waitCount++;
+            lastOutcome = "waiting for session end";
+            schedule(CHECK_INTERVAL_MS);
+            return;
+        }
+
+        // one run serves the whole batch
+        requests.clear();
+        runCount++;
+        uploading = true;
+        lastOutcome = "uploading";
+        timer.schedule(() -> verify(pending), VERIFY_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void verify(int pendingBefore) {
+        uploading = false;
+        int pendingAfter = uploader.pendingSessions();
+        long now = platform.uptimeMillis();
+
+        if (pendingAfter < pendingBefore) {
+            successCount++;
+            uploadedSessions += pendingBefore - pendingAfter;
+            consecutiveFailures = 0;
+            nextAttemptAtMs = 0;
+            lastOutcome = "uploaded";
+            // sessions left over go out with the next batch
+            if (pendingAfter > 0) requests.addLast(now);
+        } else {
+            failureCount++;
+            consecutiveFailures++;
+            long backoffMs = BASE_BACKOFF_MS << Math.min(consecutiveFailures - 1, 16);
+            nextAttemptAtMs = now + Math.min(backoffMs, MAX_BACKOFF_MS);
+            lastOutcome = "failed";
+            requests.addLast(now);
+        }
+        trimBacklog();
+        if (!requests.isEmpty()) schedule(Math.max(0, nextAttemptAtMs - now));
+    }
+
+    private String blocker() {
+        if (!conditions.isConnected()) return "network";
+        if (requireUnmetered && !conditions.isUnmetered()) return "unmetered network";
+        if (requireCharging && !conditions.isCharging()) return "charging";
+        if (requireIdle && !conditions.isIdle()) return "idle";
+        return null;
+    }
+}
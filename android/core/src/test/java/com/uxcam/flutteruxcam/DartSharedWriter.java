@@ -0,0 +1,86 @@
+package com.uxcam.flutteruxcam;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Line by line port of the Dart {@code OcclusionSharedBuffer} writer, including its checksum
+ * done in 64 bit arithmetic masked to 32 bits, so tests can check native reads what Dart writes.
+ * Items are {id, left, top, right, bottom} in pixels.
+ */
+final class DartSharedWriter {
+    private static final int HEADER_SIZE = 16;
+    private static final int BUFFER_HEADER_SIZE = 24;
+    private static final int SLOT_SIZE = 28;
+    private static final int SEQ_OFFSET = 12;
+    private static final int INACTIVE = -1;
+    private static final int MAX_SEQ = 0x7fffffff;
+
+    private final ByteBuffer data;
+    private final int slots;
+    private int seq;
+
+    DartSharedWriter(ByteBuffer data, int slots) {
+        this.data = data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        this.slots = slots;
+        this.seq = this.data.getInt(SEQ_OFFSET);
+    }
+
+    /**
+     * Starts the next publish from {@code seq}, e.g. to cover the wrap.
+     */
+    void setSeq(int seq) {
+        this.seq = seq;
+    }
+
+    int publish(float[][] rects, long nowMs) {
+        return write(rects, rects.length, nowMs, false);
+    }
+
+    int deactivate(long nowMs) {
+        return write(new float[0][], INACTIVE, nowMs, false);
+    }
+
+    /**
+     * Fills the next buffer but stops before publishing its seq, as if Dart were still writing.
+     */
+    int writeWithoutPublishing(float[][] rects, long nowMs) {
+        return write(rects, rects.length, nowMs, true);
+    }
+
+    private int write(float[][] rects, int count, long nowMs, boolean unfinished) {
+        int next = seq >= MAX_SEQ ? 2 : seq + 1;
+        int base = HEADER_SIZE + (next & 1) * (BUFFER_HEADER_SIZE + slots * SLOT_SIZE);
+        data.putInt(base, 0);
+
+        long hash = mix(mix(mix(next, count), nowMs), nowMs >> 32);
+        int offset = base + BUFFER_HEADER_SIZE;
+        for (float[] rect : rects) {
+            data.putInt(offset, 7);
+            data.putInt(offset + 4, (int) rect[0]);
+            data.putFloat(offset + 8, rect[1]);
+            data.putFloat(offset + 12, rect[2]);
+            data.putFloat(offset + 16, rect[3]);
+            data.putFloat(offset + 20, rect[4]);
+            data.putInt(offset + 24, 0);
+            for (int word = offset; word < offset + SLOT_SIZE; word += 4) {
+                hash = mix(hash, data.getInt(word) & 0xffffffffL);
+            }
+            offset += SLOT_SIZE;
+        }
+
+        data.putInt(base + 4, count);
+        data.putLong(base + 8, nowMs);
+        data.putInt(base + 16, (int) hash);
+        if (!unfinished) {
+            data.putInt(base, next);
+            data.putInt(SEQ_OFFSET, next);
+        }
+        seq = next;
+        return base;
+    }
+
+    private static long mix(long hash, long word) {
+        return (hash * 31 + (word & 0xffffffffL)) & 0xffffffffL;
+    }
+}
@@ -0,0 +1,156 @@
+package com.uxcam.flutteruxcam;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class ExceptionReporterTest {
+    private final TestPlatform platform = new TestPlatform();
+    private final List<Exception> exceptions = new ArrayList<>();
+    private final List<Map<String, Object>> properties = new ArrayList<>();
+    private final CountDownLatch withOccurrences = new CountDownLatch(1);
+    private final ExceptionReporter reporter = new ExceptionReporter(platform, new ExceptionReporter.Sink() {
+        @Override
+        public void reportException(Exception exception) {
+            record(exception, null);
+        }
+
+        @Override
+        public void reportException(Exception exception, Map<String, Object> reportProperties) {
+            record(exception, reportProperties);
+            if (reportProperties.containsKey(ExceptionReporter.OCCURRENCES)) withOccurrences.countDown();
+        }
+    });
+
+    @Test
+    public void repeatsInAWindowGoOutOnceWithTheirCount() {
+        Map<String, Object> screen = Collections.<String, Object>singletonMap("screen", "Home");
+        reporter.report("boom", frames("a", "b"), screen);
+        platform.nowMs += 10;
+        reporter.report("boom", frames("a", "b"), screen);
+        reporter.report("boom", frames("a", "b"), screen);
+        assertEquals(1, sent());
+        assertEquals(screen, properties.get(0));
+
+        // the next report after the window closes flushes the repeats first
+        platform.nowMs += ExceptionReporter.DEFAULT_WINDOW_MS;
+        reporter.report("boom", frames("a", "b"), screen);
+        assertEquals(3, sent());
+        assertEquals(2, properties.get(1).get(ExceptionReporter.OCCURRENCES));
+        assertEquals("Home", properties.get(1).get("screen"));
+        assertEquals(screen, properties.get(2));
+        assertEquals(2L, reporter.stats().get("suppressed"));
+    }
+
+    @Test
+    public void windowClosesOnItsOwn() throws InterruptedException {
+        reporter.configure(20, ExceptionReporter.DEFAULT_BURST, ExceptionReporter.DEFAULT_REPORTS_PER_SECOND);
+        reporter.report("boom", frames("a"), null);
+        reporter.report("boom", frames("a"), null);
+
+        assertTrue(withOccurrences.await(5, TimeUnit.SECONDS));
+        synchronized (this) {
+            assertEquals(2, exceptions.size());
+            assertNull(properties.get(0));
+            assertEquals(1, properties.get(1).get(ExceptionReporter.OCCURRENCES));
+        }
+    }
+
+    @Test
+    public void fingerprintTellsMessagesAndTopFramesApart() {
+        reporter.report("boom", frames("a", "b"), null);
+        reporter.report("bang", frames("a", "b"), null);
+        reporter.report("boom", frames("a", "c"), null);
+        // frames below the top five do not count
+        reporter.report("boom", frames("a", "b", "c", "d", "e", "f"), null);
+        reporter.report("boom", frames("a", "b", "c", "d", "e", "g"), null);
+
+        assertEquals(4, sent());
+        assertEquals(1L, reporter.stats().get("suppressed"));
+    }
+
+    @Test
+    public void tokenBucketCapsTheReportRate() {
+        reporter.configure(0, 2, 1.0);
+        reporter.report("one", frames("a"), null);
+        reporter.report("two", frames("a"), null);
+        reporter.report("three", frames("a"), null);
+        assertEquals(2, sent());
+        assertEquals(1L, reporter.stats().get("rateLimited"));
+
+        platform.nowMs += 1000;
+        reporter.report("four", frames("a"), null);
+        reporter.report("five", frames("a"), null);
+        assertEquals(3, sent());
+
+        // without a window repeats are not deduped, only rate limited
+        platform.nowMs += 2000;
+        reporter.report("four", frames("a"), null);
+        reporter.report("four", frames("a"), null);
+        assertEquals(5, sent());
+    }
+
+    @Test
+    public void framesAreInternedUpToTheCap() {
+        reporter.configure(0, 1000, 1000);
+        reporter.report("one", frames("a", "b"), null);
+        reporter.report("two", frames("a", "b"), null);
+        StackTraceElement[] first = exceptions.get(0).getStackTrace();
+        StackTraceElement[] second = exceptions.get(1).getStackTrace();
+        assertEquals(2, first.length);
+        assertSame(first[0], second[0]);
+        assertSame(first[1], second[1]);
+        assertEquals("a", first[0].getMethodName());
+
+        List<String> methods = new ArrayList<>();
+        for (int i = 0; i < 600; i++) {
+            methods.add("m" + i);
+        }
+        reporter.report("many", frames(methods.toArray(new String[0])), null);
+        assertEquals(512, reporter.stats().get("internedFrames"));
+    }
+
+    @Test
+    public void framesThatCannotBeBuiltAreSkipped() {
+        List<Map<String, String>> frames = frames("a", "b");
+        frames.get(0).put("line", "not a number");
+
+        reporter.report("boom", frames, null);
+        StackTraceElement[] trace = exceptions.get(0).getStackTrace();
+        assertEquals(1, trace.length);
+        assertEquals("b", trace[0].getMethodName());
+        assertEquals("boom", exceptions.get(0).getMessage());
+    }
+
+    private synchronized void record(Exception exception, Map<String, Object> reportProperties) {
+        exceptions.add(exception);
+        properties.add(reportProperties);
+    }
+
+    private synchronized int sent() {
+        return exceptions.size();
+    }
+
+    private static List<Map<String, String>> frames(String... methods) {
+        List<Map<String, String>> frames = new ArrayList<>();
+        for (int i = 0; i < methods.length; i++) {
+            Map<String, String> frame = new HashMap<>();
+            frame.put("class", "boom");
+            frame.put("method", methods[i]);
+            frame.put("file", "main.dart");
+            frame.put("line", String.valueOf(i + 1));
+            frames.add(frame);
+        }
+        return frames;
+    }
+}
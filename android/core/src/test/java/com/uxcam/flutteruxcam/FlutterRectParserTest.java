@@ -0,0 +1,71 @@
+package com.uxcam.flutteruxcam;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+public class FlutterRectParserTest {
+    private final FlutterRectParser<TestRect> parser = new FlutterRectParser<>(new TestPlatform(), TestRect.OPS);
+
+    @Test
+    public void flatValuesAreRoundedOutwards() {
+        List<TestRect> rects = parser.parse(new float[]{0.5f, 1.2f, 10.1f, 20f, 30, 30, 40, 40});
+
+        assertEquals(TestRect.list(new TestRect(0, 1, 11, 20), new TestRect(30, 30, 40, 40)), TestRect.copy(rects));
+    }
+
+    @Test
+    public void emptyRectsAreDropped() {
+        List<TestRect> rects = parser.parse(new float[]{10, 10, 10, 20, 5, 5, 6, 6, 8, 8, 4, 4});
+
+        assertEquals(TestRect.list(new TestRect(5, 5, 6, 6)), TestRect.copy(rects));
+    }
+
+    @Test
+    public void nullReplyIsEmpty() {
+        assertEquals(Collections.emptyList(), parser.parse(null));
+        assertEquals(Collections.emptyList(), parser.parse(new float[0]));
+    }
+
+    @Test
+    public void truncatedFlatValuesAreMalformed() {
+        assertNull(parser.parse(new float[]{0, 0, 10, 10, 20, 20, 30}));
+    }
+
+    @Test
+    public void legacyMapsAreDecoded() {
+        List<Map<String, Object>> reply = Arrays.asList(rect(1, 2, 3.5, 4), rect(10, 10, 20, 20));
+
+        assertEquals(TestRect.list(new TestRect(1, 2, 4, 4), new TestRect(10, 10, 20, 20)),
+                TestRect.copy(parser.parse(reply)));
+    }
+
+    @Test
+    public void malformedLegacyRepliesAreRejected() {
+        Map<String, Object> missingBottom = rect(1, 2, 3, 4);
+        missingBottom.remove("bottom");
+        Map<String, Object> textValue = rect(1, 2, 3, 4);
+        textValue.put("left", "1");
+
+        assertNull(parser.parse(Arrays.asList(rect(0, 0, 1, 1), missingBottom)));
+        assertNull(parser.parse(Arrays.asList(textValue)));
+        assertNull(parser.parse(Arrays.asList("not a rect")));
+        assertNull(parser.parse("not a list"));
+        assertNull(parser.parse(new int[]{0, 0, 1, 1}));
+    }
+
+    private static Map<String, Object> rect(double left, double top, double right, double bottom) {
+        Map<String, Object> rect = new HashMap<>();
+        rect.put("left", left);
+        rect.put("top", top);
+        rect.put("right", right);
+        rect.put("bottom", bottom);
+        return rect;
+    }
+}
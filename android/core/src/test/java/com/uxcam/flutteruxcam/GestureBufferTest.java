@@ -0,0 +1,147 @@
+package com.uxcam.flutteruxcam;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class GestureBufferTest {
+    private final GestureBuffer gestures = new GestureBuffer(4);
+    private final List<String> drained = new ArrayList<>();
+    private final GestureBuffer.Sink sink = (x, y, timestampMs, content) ->
+            drained.add(x + "," + y + "@" + timestampMs + ":" + content);
+
+    @Test
+    public void gesturesUseDefinedContent() {
+        gestures.decode(new Message().define(0, "Button").define(5, "\u00c9lan")
+                .gesture(1.5f, 2, 100, 0).gesture(3, 4, 200, 5).build());
+
+        assertEquals(2, gestures.drain(sink));
+        assertEquals(listOf("1.5,2.0@100:Button", "3.0,4.0@200:\u00c9lan"), drained);
+        assertEquals(0, gestures.drain(sink));
+    }
+
+    @Test
+    public void definitionsLastAcrossMessagesUntilReset() {
+        gestures.decode(new Message().define(100, "List").build());
+        gestures.decode(new Message().gesture(1, 1, 1, 100).build());
+        gestures.decode(new Message().reset().gesture(2, 2, 2, 100).build());
+
+        gestures.drain(sink);
+        assertEquals(listOf("1.0,1.0@1:List"), drained);
+    }
+
+    @Test
+    public void unknownContentIsSkipped() {
+        gestures.decode(new Message().gesture(1, 1, 1, 3).gesture(2, 2, 2, -1).build());
+
+        assertEquals(0, gestures.drain(sink));
+        assertEquals(0L, gestures.stats().get("received"));
+    }
+
+    @Test
+    public void truncatedMessageKeepsCompleteRecords() {
+        ByteBuffer message = new Message().define(0, "Tab").gesture(1, 1, 1, 0).gesture(2, 2, 2, 0).build();
+        message.limit(message.limit() - 1);
+
+        gestures.decode(message);
+        gestures.drain(sink);
+        assertEquals(listOf("1.0,1.0@1:Tab"), drained);
+    }
+
+    @Test
+    public void unknownKindStopsDecoding() {
+        Message message = new Message().define(0, "Tab").gesture(1, 1, 1, 0);
+        message.records.write(9);
+        message.count++;
+        message.gesture(2, 2, 2, 0);
+
+        gestures.decode(message.build());
+        gestures.drain(sink);
+        assertEquals(listOf("1.0,1.0@1:Tab"), drained);
+    }
+
+    @Test
+    public void fullRingDropsTheOldest() {
+        Message message = new Message().define(0, "Tab");
+        for (int i = 0; i < 6; i++) {
+            message.gesture(i, i, i, 0);
+        }
+        gestures.decode(message.build());
+
+        assertEquals(4, gestures.drain(sink));
+        assertEquals(listOf("2.0,2.0@2:Tab", "3.0,3.0@3:Tab", "4.0,4.0@4:Tab", "5.0,5.0@5:Tab"), drained);
+        assertEquals(2L, gestures.stats().get("dropped"));
+        assertEquals(4L, gestures.stats().get("delivered"));
+    }
+
+    @Test
+    public void trimmedRingComesBackOnTheNextGesture() {
+        gestures.decode(new Message().define(0, "Tab").gesture(1, 1, 1, 0).build());
+        gestures.trim();
+        gestures.drain(sink);
+        assertEquals(listOf("1.0,1.0@1:Tab"), drained);
+
+        gestures.trim();
+        assertEquals(0, gestures.drain(sink));
+        gestures.decode(new Message().gesture(2, 2, 2, 0).build());
+        gestures.drain(sink);
+        assertEquals(listOf("1.0,1.0@1:Tab", "2.0,2.0@2:Tab"), drained);
+    }
+
+    private static List<String> listOf(String... values) {
+        List<String> list = new ArrayList<>();
+        for (String value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+
+    /**
+     * Builds a {@code uxcam_gesture_v1} message the way the Dart encoder does.
+     */
+    private static final class Message {
+        final ByteArrayOutputStream records = new ByteArrayOutputStream();
+        int count = 0;
+
+        Message gesture(float x, float y, long timestampMs, int contentId) {
+            ByteBuffer record = record(21, GestureBuffer.KIND_GESTURE);
+            record.putFloat(x).putFloat(y).putLong(timestampMs).putInt(contentId);
+            return add(record);
+        }
+
+        Message define(int contentId, String content) {
+            byte[] bytes = content.getBytes(Charset.forName("UTF-8"));
+            ByteBuffer record = record(9 + bytes.length, GestureBuffer.KIND_DEFINE);
+            record.putInt(contentId).putInt(bytes.length).put(bytes);
+            return add(record);
+        }
+
+        Message reset() {
+            return add(record(1, GestureBuffer.KIND_RESET));
+        }
+
+        ByteBuffer build() {
+            byte[] payload = records.toByteArray();
+            ByteBuffer message = ByteBuffer.allocateDirect(8 + payload.length).order(ByteOrder.LITTLE_ENDIAN);
+            message.putInt(count).putInt(0).put(payload);
+            message.flip();
+            return message;
+        }
+
+        private static ByteBuffer record(int size, int kind) {
+            return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN).put((byte) kind);
+        }
+
+        private Message add(ByteBuffer record) {
+            records.write(record.array(), 0, record.position());
+            count++;
+            return this;
+        }
+    }
+}
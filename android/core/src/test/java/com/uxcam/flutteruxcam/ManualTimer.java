@@ -0,0 +1,98 @@
+package com.uxcam.flutteruxcam;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timer whose tasks run on the test thread when {@link #advance} moves the {@link TestPlatform}
+ * clock past them. Only {@code schedule(Runnable, long, TimeUnit)} is supported.
+ */
+final class ManualTimer extends ScheduledThreadPoolExecutor {
+    private final TestPlatform platform;
+    private final List<Task> tasks = new ArrayList<>();
+
+    ManualTimer(TestPlatform platform) {
+        super(0);
+        this.platform = platform;
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+        Task task = new Task(command, platform.nowMs + unit.toMillis(delay));
+        tasks.add(task);
+        return task;
+    }
+
+    /**
+     * Moves the clock forward by {@code ms}, running every task that falls due in order.
+     */
+    void advance(long ms) {
+        long until = platform.nowMs + ms;
+        while (true) {
+            Task next = null;
+            for (Task task : tasks) {
+                if (task.dueMs <= until && (next == null || task.dueMs < next.dueMs)) next = task;
+            }
+            if (next == null) break;
+            tasks.remove(next);
+            platform.nowMs = Math.max(platform.nowMs, next.dueMs);
+            next.done = true;
+            next.command.run();
+        }
+        platform.nowMs = until;
+    }
+
+    private final class Task implements ScheduledFuture<Object> {
+        final Runnable command;
+        final long dueMs;
+        boolean done = false;
+        boolean cancelled = false;
+
+        Task(Runnable command, long dueMs) {
+            this.command = command;
+            this.dueMs = dueMs;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueMs - platform.nowMs, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(getDelay(TimeUnit.MILLISECONDS), other.getDelay(TimeUnit.MILLISECONDS));
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            if (done) return false;
+            cancelled = true;
+            done = true;
+            return tasks.remove(this);
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public boolean isDone() {
+            return done;
+        }
+
+        @Override
+        public Object get() {
+            return null;
+        }
+
+        @Override
+        public Object get(long timeout, TimeUnit unit) {
+            return null;
+        }
+    }
+}
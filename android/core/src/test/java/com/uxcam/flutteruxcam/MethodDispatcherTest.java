@@ -0,0 +1,134 @@
+package com.uxcam.flutteruxcam;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+public class MethodDispatcherTest {
+    private final List<String> handled = new ArrayList<>();
+    private final MethodDispatcher<Call, List<String>> dispatcher = new MethodDispatcher<>(
+            new MethodDispatcher.Channel<Call, List<String>>() {
+                @Override
+                public String method(Call call) {
+                    return call.method;
+                }
+
+                @Override
+                public Object argument(Call call, String name) {
+                    return call.arguments.get(name);
+                }
+
+                @Override
+                public void error(List<String> result, String code, String message) {
+                    result.add(code + ": " + message);
+                }
+
+                @Override
+                public void notImplemented(List<String> result) {
+                    result.add("notImplemented");
+                }
+            });
+
+    public MethodDispatcherTest() {
+        dispatcher.register("tagScreenName", MethodDispatcher.Queue.MAIN).arg("key", String.class)
+                .to((call, result) -> handled.add("tagScreenName " + call.arguments.get("key")));
+        dispatcher.register("logEvent", MethodDispatcher.Queue.BACKGROUND).arg("key", String.class)
+                .to((call, result) -> handled.add("logEvent " + call.arguments.get("key")));
+        dispatcher.register("configure", MethodDispatcher.Queue.MAIN)
+                .arg("enabled", Boolean.class).arg("intervalMs", Integer.class).arg("config", Map.class)
+                .to((call, result) -> handled.add("configure"));
+    }
+
+    @Test
+    public void callsReachTheirHandler() {
+        List<String> result = new ArrayList<>();
+        dispatcher.dispatch(new Call("tagScreenName").with("key", "Home"), result, MethodDispatcher.Queue.MAIN);
+        dispatcher.dispatch(new Call("logEvent").with("key", "tap"), result, MethodDispatcher.Queue.BACKGROUND);
+
+        assertEquals(listOf("tagScreenName Home", "logEvent tap"), handled);
+        assertEquals(0, result.size());
+    }
+
+    @Test
+    public void backgroundMethodsAlsoServeTheMainChannel() {
+        List<String> result = new ArrayList<>();
+        dispatcher.dispatch(new Call("logEvent").with("key", "tap"), result, MethodDispatcher.Queue.MAIN);
+
+        assertEquals(listOf("logEvent tap"), handled);
+    }
+
+    @Test
+    public void mainMethodsAreNotServedInTheBackground() {
+        List<String> result = new ArrayList<>();
+        dispatcher.dispatch(new Call("tagScreenName").with("key", "Home"), result, MethodDispatcher.Queue.BACKGROUND);
+
+        assertEquals(0, handled.size());
+        assertEquals(listOf("notImplemented"), result);
+    }
+
+    @Test
+    public void unknownMethodsAreNotImplemented() {
+        List<String> result = new ArrayList<>();
+        dispatcher.dispatch(new Call("addNewRect"), result, MethodDispatcher.Queue.MAIN);
+
+        assertEquals(listOf("notImplemented"), result);
+    }
+
+    @Test
+    public void wrongArgumentTypesAreRejectedBeforeTheHandler() {
+        List<String> result = new ArrayList<>();
+        dispatcher.dispatch(new Call("configure").with("enabled", true).with("intervalMs", 1.5),
+                result, MethodDispatcher.Queue.MAIN);
+
+        assertEquals(0, handled.size());
+        assertEquals(listOf(MethodDispatcher.INVALID_ARGUMENT + ": configure: 'intervalMs' must be Integer, got Double"),
+                result);
+    }
+
+    @Test
+    public void missingArgumentsAndSubtypesPass() {
+        List<String> result = new ArrayList<>();
+        dispatcher.dispatch(new Call("configure").with("config", new HashMap<String, Object>()),
+                result, MethodDispatcher.Queue.MAIN);
+
+        assertEquals(listOf("configure"), handled);
+        assertEquals(0, result.size());
+    }
+
+    @Test
+    public void methodsRegisterOnce() {
+        try {
+            dispatcher.register("logEvent", MethodDispatcher.Queue.MAIN).to((call, result) -> { });
+            fail();
+        } catch (IllegalStateException expected) {
+            assertEquals("Duplicate handler for logEvent", expected.getMessage());
+        }
+    }
+
+    private static List<String> listOf(String... values) {
+        List<String> list = new ArrayList<>();
+        for (String value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+
+    private static final class Call {
+        final String method;
+        final Map<String, Object> arguments = new HashMap<>();
+
+        Call(String method) {
+            this.method = method;
+        }
+
+        Call with(String name, Object value) {
+            arguments.put(name, value);
+            return this;
+        }
+    }
+}
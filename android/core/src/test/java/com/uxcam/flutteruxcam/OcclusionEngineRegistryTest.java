@@ -0,0 +1,145 @@
+package com.uxcam.flutteruxcam;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+public class OcclusionEngineRegistryTest {
+    private final TestPlatform platform = new TestPlatform();
+    private final OcclusionEngineRegistry<TestRect> registry =
+            new OcclusionEngineRegistry<>(platform, TestRect.OPS, new PluginMetrics(platform));
+    private final List<OcclusionDelegate.Listener<TestRect>> listeners = new ArrayList<>();
+    private final OcclusionDelegate<TestRect> delegate = listeners::add;
+
+    @Test
+    public void answersMergeAcrossEngines() {
+        FakeSource first = new FakeSource(true);
+        FakeSource second = new FakeSource(false);
+        registry.register(first, delegate);
+        registry.register(second, delegate);
+        assertEquals(1, listeners.size());
+
+        RecordingWaiter callback = request();
+        first.answer(new TestRect(0, 0, 10, 10));
+        assertEquals(0, callback.calls());
+        second.answer(new TestRect(50, 50, 60, 60));
+        assertEquals(1, callback.calls());
+        assertEquals(2, callback.answers.get(0).size());
+    }
+
+    @Test
+    public void unregisterKeepsTheOtherEnginesFallback() {
+        FakeSource first = new FakeSource(true);
+        FakeSource second = new FakeSource(true);
+        int firstId = registry.register(first, delegate);
+        registry.register(second, delegate);
+        request();
+        first.answer(new TestRect(0, 0, 10, 10));
+        second.answer(new TestRect(50, 50, 60, 60));
+
+        registry.unregister(firstId);
+        RecordingWaiter callback = request();
+        second.fail();
+        assertEquals(1, callback.calls());
+        assertEquals(TestRect.list(new TestRect(50, 50, 60, 60)), callback.answers.get(0));
+    }
+
+    @Test
+    public void throttleOnlySkipsDartRoundTrips() {
+        FakeSource dart = new FakeSource(true);
+        FakeSource store = new FakeSource(false);
+        registry.register(dart, delegate);
+        registry.register(store, delegate);
+        registry.setMinRequestIntervalMs(100);
+
+        RecordingWaiter first = request();
+        dart.answer(new TestRect(0, 0, 10, 10));
+        store.answer(new TestRect(50, 50, 60, 60));
+        assertEquals(1, first.calls());
+
+        // too soon for Dart, which answers with its last rects; the store is still asked
+        platform.nowMs += 50;
+        RecordingWaiter second = request();
+        assertEquals(1, dart.requests);
+        assertEquals(2, store.requests);
+        store.answer(new TestRect(70, 70, 80, 80));
+        assertEquals(TestRect.list(new TestRect(0, 0, 10, 10), new TestRect(70, 70, 80, 80)),
+                second.answers.get(0));
+        assertEquals(1L, stats().get("throttled"));
+
+        platform.nowMs += 50;
+        request();
+        assertEquals(2, dart.requests);
+    }
+
+    @Test
+    public void trimKeepsTheFallback() {
+        FakeSource source = new FakeSource(true);
+        registry.register(source, delegate);
+        request();
+        source.answer(new TestRect(0, 0, 10, 10));
+
+        registry.trim();
+        RecordingWaiter callback = request();
+        source.fail();
+        assertEquals(TestRect.list(new TestRect(0, 0, 10, 10)), callback.answers.get(0));
+    }
+
+    private RecordingWaiter request() {
+        RecordingWaiter callback = new RecordingWaiter();
+        listeners.get(0).requestOcclusionRects(callback);
+        return callback;
+    }
+
+    private Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        registry.appendStats(stats);
+        return stats;
+    }
+
+    /**
+     * Source whose answers the test sends one at a time.
+     */
+    private static final class FakeSource implements OcclusionEngineRegistry.Source<TestRect> {
+        private final boolean roundTrip;
+        private final List<OcclusionRequestCoalescer.Waiter<TestRect>> waiters = new ArrayList<>();
+        int requests = 0;
+
+        FakeSource(boolean roundTrip) {
+            this.roundTrip = roundTrip;
+        }
+
+        @Override
+        public boolean needsRoundTrip() {
+            return roundTrip;
+        }
+
+        @Override
+        public void requestRects(OcclusionRequestCoalescer.Waiter<TestRect> waiter) {
+            requests++;
+            waiters.add(waiter);
+        }
+
+        void answer(TestRect... rects) {
+            for (OcclusionRequestCoalescer.Waiter<TestRect> waiter : drain()) {
+                waiter.complete(TestRect.list(rects));
+            }
+        }
+
+        void fail() {
+            for (OcclusionRequestCoalescer.Waiter<TestRect> waiter : drain()) {
+                waiter.fail();
+            }
+        }
+
+        private List<OcclusionRequestCoalescer.Waiter<TestRect>> drain() {
+            List<OcclusionRequestCoalescer.Waiter<TestRect>> drained = new ArrayList<>(waiters);
+            waiters.clear();
+            return drained;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.uxcam.flutteruxcam;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+
+public class OcclusionHitGridTest {
+    private static final int CELL = OcclusionHitGrid.CELL_SIZE_PX;
+
+    private final OcclusionHitGrid grid = new OcclusionHitGrid();
+    private final Map<Integer, float[]> rects = new HashMap<>();
+    private final OcclusionHitGrid.Bounds bounds = (id, x, y) -> {
+        float[] rect = rects.get(id);
+        return rect != null && x >= rect[0] && y >= rect[1] && x < rect[2] && y < rect[3];
+    };
+
+    @Test
+    public void hitsOnlyInsideRects() {
+        add(1, 10, 10, 300, 50);
+
+        assertTrue(hit(20, 20));
+        assertTrue(hit(290, 40));
+        assertFalse(hit(5, 20));
+        assertFalse(hit(20, 60));
+    }
+
+    @Test
+    public void moveFollowsTheRectAcrossCells() {
+        add(1, 0, 0, 10, 10);
+        move(1, 500, 500, 510, 510);
+
+        assertFalse(hit(5, 5));
+        assertTrue(hit(505, 505));
+    }
+
+    @Test
+    public void removedRectsNoLongerHit() {
+        add(1, 0, 0, 10, 10);
+        add(2, 5, 5, 20, 20);
+        remove(1);
+
+        assertFalse(hit(2, 2));
+        assertTrue(hit(15, 15));
+    }
+
+    @Test
+    public void oversizedRectsHitEverywhereTheyCover() {
+        add(1, 0, 0, CELL * 20, CELL * 20);
+
+        assertTrue(hit(CELL * 19 + 1, CELL * 19 + 1));
+        move(1, 0, 0, 10, 10);
+        assertTrue(hit(5, 5));
+        assertFalse(hit(CELL * 19 + 1, CELL * 19 + 1));
+        remove(1);
+        assertFalse(hit(5, 5));
+    }
+
+    @Test
+    public void negativeCoordinatesGetTheirOwnCells() {
+        add(1, -200, -200, -150, -150);
+        add(2, 150, 150, 200, 200);
+
+        assertTrue(hit(-175, -175));
+        assertTrue(hit(175, 175));
+        remove(1);
+        assertFalse(hit(-175, -175));
+        assertTrue(hit(175, 175));
+    }
+
+    @Test
+    public void manyCellsSurviveGrowthAndRemoval() {
+        int id = 0;
+        for (int cy = -20; cy < 20; cy++) {
+            for (int cx = -20; cx < 20; cx++) {
+                add(id++, cx * CELL + 1, cy * CELL + 1, cx * CELL + 2, cy * CELL + 2);
+            }
+        }
+        // remove every other rect, shifting probe runs back
+        for (int i = 0; i < id; i += 2) {
+            remove(i);
+        }
+
+        id = 0;
+        for (int cy = -20; cy < 20; cy++) {
+            for (int cx = -20; cx < 20; cx++) {
+                boolean kept = id++ % 2 == 1;
+                float x = cx * CELL + 1.5f;
+                float y = cy * CELL + 1.5f;
+                if (kept) {
+                    assertTrue(hit(x, y));
+                } else {
+                    assertFalse(hit(x, y));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void clearDropsEverything() {
+        add(1, 0, 0, 10, 10);
+        add(2, 0, 0, CELL * 20, CELL * 20);
+        grid.clear();
+
+        assertFalse(grid.hit(5, 5, bounds));
+        add(3, 0, 0, 10, 10);
+        assertTrue(hit(5, 5));
+    }
+
+    private void add(int id, float left, float top, float right, float bottom) {
+        rects.put(id, new float[] {left, top, right, bottom});
+        grid.add(id, left, top, right, bottom);
+    }
+
+    private void move(int id, float left, float top, float right, float bottom) {
+        float[] old = rects.put(id, new float[] {left, top, right, bottom});
+        grid.move(id, old[0], old[1], old[2], old[3], left, top, right, bottom);
+    }
+
+    private void remove(int id) {
+        float[] old = rects.remove(id);
+        grid.remove(id, old[0], old[1], old[2], old[3]);
+    }
+
+    private boolean hit(float x, float y) {
+        return grid.hit(x, y, bounds);
+    }
+}
@@ -0,0 +1,77 @@
+package com.uxcam.flutteruxcam;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.List;
+import org.junit.Test;
+
+public class OcclusionRectMergerTest {
+    private final OcclusionRectMerger<TestRect> merger = new OcclusionRectMerger<>(TestRect.OPS);
+
+    @Test
+    public void overlappingAndNestedRectsMerge() {
+        List<TestRect> rects = TestRect.list(
+                new TestRect(50, 50, 60, 60),
+                new TestRect(0, 0, 20, 20),
+                new TestRect(5, 5, 10, 10),
+                new TestRect(15, 15, 30, 30));
+
+        List<TestRect> merged = merger.merge(rects);
+        assertSame(rects, merged);
+        assertEquals(TestRect.list(new TestRect(0, 0, 30, 30), new TestRect(50, 50, 60, 60)), merged);
+    }
+
+    @Test
+    public void rectsWithinSlackMerge() {
+        merger.configure(true, 2);
+        List<TestRect> rects = TestRect.list(new TestRect(12, 0, 20, 10), new TestRect(0, 0, 10, 10),
+                new TestRect(0, 13, 10, 20));
+
+        assertEquals(TestRect.list(new TestRect(0, 0, 20, 10), new TestRect(0, 13, 10, 20)), merger.merge(rects));
+
+        merger.configure(true, 3);
+        assertEquals(TestRect.list(new TestRect(0, 0, 20, 20)), merger.merge(rects));
+    }
+
+    @Test
+    public void growingUnionPicksUpRectsItSkipped() {
+        // the first two only touch once the tall rect has joined one of them
+        List<TestRect> rects = TestRect.list(
+                new TestRect(0, 0, 10, 10),
+                new TestRect(5, 50, 15, 60),
+                new TestRect(8, 5, 12, 55));
+
+        assertEquals(TestRect.list(new TestRect(0, 0, 15, 60)), merger.merge(rects));
+    }
+
+    @Test
+    public void sweepStopsAtRectsStartingFurtherRight() {
+        List<TestRect> rects = TestRect.list(
+                new TestRect(100, 0, 110, 10),
+                new TestRect(0, 0, 10, 10),
+                new TestRect(0, 100, 200, 110));
+
+        assertEquals(TestRect.list(new TestRect(0, 0, 10, 10), new TestRect(0, 100, 200, 110),
+                new TestRect(100, 0, 110, 10)), merger.merge(rects));
+    }
+
+    @Test
+    public void disabledMergerLeavesRectsAlone() {
+        merger.configure(false, 2);
+        List<TestRect> rects = TestRect.list(new TestRect(10, 10, 20, 20), new TestRect(0, 0, 15, 15));
+
+        assertEquals(TestRect.list(new TestRect(10, 10, 20, 20), new TestRect(0, 0, 15, 15)), merger.merge(rects));
+        assertEquals(2L, merger.stats().get("rectsOut"));
+    }
+
+    @Test
+    public void statsCountRectsInAndOut() {
+        merger.merge(TestRect.list(new TestRect(0, 0, 10, 10), new TestRect(5, 5, 15, 15)));
+        merger.merge(TestRect.list());
+
+        assertEquals(2L, merger.stats().get("frames"));
+        assertEquals(2L, merger.stats().get("rectsIn"));
+        assertEquals(1L, merger.stats().get("rectsOut"));
+    }
+}
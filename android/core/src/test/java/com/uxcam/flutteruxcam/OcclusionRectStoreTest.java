@@ -0,0 +1,139 @@
+package com.uxcam.flutteruxcam;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+public class OcclusionRectStoreTest {
+    private final OcclusionRectStore<TestRect> store = new OcclusionRectStore<>(TestRect.OPS);
+
+    @Test
+    public void batchAddsAndMovesEntries() {
+        store.applyBatch(batch(item(1, 10, 20, 30, 40), item(2, 100, 100, 110.5f, 120)), 0);
+        assertTrue(store.isPrimed());
+        assertEquals(TestRect.list(new TestRect(10, 20, 30, 40), new TestRect(100, 100, 111, 120)),
+                snapshot(0));
+
+        store.applyBatch(batch(item(1, 12, 20, 32, 40)), 0);
+        assertEquals(TestRect.list(new TestRect(12, 20, 32, 40), new TestRect(100, 100, 111, 120)),
+                snapshot(0));
+        assertTrue(store.isOccluded(31, 30));
+        assertFalse(store.isOccluded(11, 30));
+    }
+
+    @Test
+    public void removalNeedsTheFullSentinel() {
+        store.applyBatch(batch(item(1, 10, 10, 20, 20), item(2, 30, 30, 40, 40)), 0);
+
+        // left -1 alone is a real rect just off the left edge
+        store.applyBatch(batch(item(1, -1, 10, 20, 20)), 0);
+        assertEquals(TestRect.list(new TestRect(-1, 10, 20, 20), new TestRect(30, 30, 40, 40)),
+                snapshot(0));
+
+        store.applyBatch(batch(item(1, -1, 0, 0, 0)), 0);
+        assertEquals(TestRect.list(new TestRect(30, 30, 40, 40)), snapshot(0));
+        assertFalse(store.isOccluded(15, 15));
+    }
+
+    @Test
+    public void clearAllEmptiesTheStore() {
+        store.applyBatch(batch(item(1, 10, 10, 20, 20), item(2, 30, 30, 40, 40)), 0);
+
+        store.applyBatch(header(OcclusionRectStore.CLEAR_ALL, 0), 0);
+        assertTrue(store.isPrimed());
+        assertEquals(Collections.emptyList(), snapshot(0));
+        assertFalse(store.isOccluded(15, 15));
+    }
+
+    @Test
+    public void truncatedBatchKeepsCompleteItems() {
+        ByteBuffer message = batch(item(1, 10, 10, 20, 20), item(2, 30, 30, 40, 40));
+        message.putInt(0, 5);
+        message.limit(message.limit() - 1);
+
+        store.applyBatch(message, 0);
+        assertEquals(TestRect.list(new TestRect(10, 10, 20, 20)), snapshot(0));
+    }
+
+    @Test
+    public void predictionKeepsTheLastKnownBounds() {
+        // moving right at 1 px per ms
+        store.applyBatch(batch(item(1, 0, 0, 10, 10)), 0);
+        store.applyBatch(batch(item(1, 10, 0, 20, 10)), 10);
+
+        TestRect predicted = snapshot(20).get(0);
+        assertTrue(predicted.toString(), predicted.left <= 10 && predicted.right >= 30);
+        assertTrue(predicted.toString(), predicted.top <= 0 && predicted.bottom >= 10);
+
+        // once the fling stops Dart sends nothing more; the rect still covers where it was
+        store.configurePrediction(true, 100);
+        TestRect overshot = snapshot(80).get(0);
+        assertTrue(overshot.toString(), overshot.left <= 10 && overshot.right >= 20);
+    }
+
+    @Test
+    public void predictionIsBoundedByMaxExtrapolation() {
+        store.applyBatch(batch(item(1, 0, 0, 10, 10)), 0);
+        store.applyBatch(batch(item(1, 10, 0, 20, 10)), 10);
+
+        long late = 10 + OcclusionRectStore.DEFAULT_MAX_EXTRAPOLATION_MS + 1;
+        assertEquals(TestRect.list(new TestRect(10, 0, 20, 10)), snapshot(late));
+
+        store.configurePrediction(false, 0);
+        assertEquals(TestRect.list(new TestRect(10, 0, 20, 10)), snapshot(20));
+    }
+
+    @Test
+    public void sharedSnapshotReplacesEntries() {
+        SharedOcclusionBuffer shared = SharedOcclusionBuffer.allocate(4);
+        DartSharedWriter writer = new DartSharedWriter(shared.buffer(), 4);
+        store.applyBatch(batch(item(1, 10, 10, 20, 20), item(2, 30, 30, 40, 40)), 0);
+
+        writer.publish(new float[][]{{2, 30, 30, 45, 40}, {3, 50, 50, 60, 60}}, 5000);
+        store.applyShared(shared, 0, 5000);
+        assertEquals(TestRect.list(new TestRect(30, 30, 45, 40), new TestRect(50, 50, 60, 60)),
+                snapshot(0));
+
+        // an inactive buffer leaves the entries alone
+        writer.deactivate(5000);
+        store.applyShared(shared, 0, 5000);
+        assertEquals(2, snapshot(0).size());
+    }
+
+    private List<TestRect> snapshot(long nowMs) {
+        return TestRect.copy(store.snapshot(nowMs));
+    }
+
+    private static float[] item(int id, float left, float top, float right, float bottom) {
+        return new float[]{id, left, top, right, bottom};
+    }
+
+    private static ByteBuffer header(int count, int items) {
+        ByteBuffer buffer = ByteBuffer.allocate(OcclusionRectStore.HEADER_SIZE
+                + items * OcclusionRectStore.ITEM_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(count);
+        buffer.putInt(0);
+        return buffer;
+    }
+
+    private static ByteBuffer batch(float[]... items) {
+        ByteBuffer buffer = header(items.length, items.length);
+        for (float[] item : items) {
+            buffer.putInt(7); // viewId
+            buffer.putInt((int) item[0]);
+            buffer.putFloat(item[1]);
+            buffer.putFloat(item[2]);
+            buffer.putFloat(item[3]);
+            buffer.putFloat(item[4]);
+            buffer.put((byte) 0);
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
@@ -0,0 +1,88 @@
+package com.uxcam.flutteruxcam;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class OcclusionRequestCoalescerTest {
+    private final TestPlatform platform = new TestPlatform();
+    private final List<OcclusionRequestCoalescer.Flight<TestRect>> dispatched = new ArrayList<>();
+    private final OcclusionRequestCoalescer<TestRect> coalescer =
+            new OcclusionRequestCoalescer<>(platform, dispatched::add);
+
+    @Test
+    public void requestsJoinTheOpenFlight() {
+        RecordingWaiter first = new RecordingWaiter();
+        RecordingWaiter second = new RecordingWaiter();
+        coalescer.enqueue(first);
+        coalescer.enqueue(second);
+        platform.runFrame();
+        assertEquals(1, dispatched.size());
+
+        // still in flight, so a third joins too
+        RecordingWaiter third = new RecordingWaiter();
+        coalescer.enqueue(third);
+        platform.runFrame();
+        assertEquals(1, dispatched.size());
+
+        coalescer.finish(dispatched.get(0), TestRect.list(new TestRect(0, 0, 1, 1)));
+        for (RecordingWaiter waiter : new RecordingWaiter[]{first, second, third}) {
+            assertEquals(1, waiter.calls());
+            assertEquals(TestRect.list(new TestRect(0, 0, 1, 1)), waiter.answers.get(0));
+        }
+    }
+
+    @Test
+    public void onlyTheFirstFinishCounts() {
+        RecordingWaiter waiter = new RecordingWaiter();
+        coalescer.enqueue(waiter);
+        platform.runFrame();
+
+        OcclusionRequestCoalescer.Flight<TestRect> flight = dispatched.get(0);
+        coalescer.finish(flight, null);
+        coalescer.finish(flight, TestRect.list(new TestRect(0, 0, 1, 1)));
+        coalescer.abandon();
+        assertEquals(1, waiter.calls());
+        assertEquals(1, waiter.failures);
+
+        // a finished flight starts a new one
+        coalescer.enqueue(new RecordingWaiter());
+        platform.runFrame();
+        assertEquals(2, dispatched.size());
+    }
+
+    @Test
+    public void abandonFailsWaitersOnceAndSkipsTheDispatch() {
+        RecordingWaiter first = new RecordingWaiter();
+        RecordingWaiter second = new RecordingWaiter();
+        coalescer.enqueue(first);
+        coalescer.enqueue(second);
+
+        coalescer.abandon();
+        coalescer.abandon();
+        platform.runFrame();
+        assertEquals(0, dispatched.size());
+        assertEquals(1, first.failures);
+        assertEquals(1, second.failures);
+        assertEquals(0, first.answers.size());
+    }
+
+    @Test
+    public void staleFlightStopsAbsorbingRequests() {
+        RecordingWaiter first = new RecordingWaiter();
+        coalescer.enqueue(first);
+        platform.runFrame();
+
+        platform.nowMs += 1001;
+        RecordingWaiter second = new RecordingWaiter();
+        coalescer.enqueue(second);
+        platform.runFrame();
+        assertEquals(2, dispatched.size());
+
+        coalescer.finish(dispatched.get(1), TestRect.list());
+        assertEquals(0, first.calls());
+        assertEquals(1, second.calls());
+    }
+}
@@ -0,0 +1,68 @@
+package com.uxcam.flutteruxcam;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class OcclusionRequestGuardTest {
+    private final OcclusionRequestGuard<TestRect> guard =
+            new OcclusionRequestGuard<>(() -> TestRect.list(new TestRect(1, 1, 2, 2)));
+
+    @Test
+    public void completesOnceWithTheDartResult() {
+        RecordingWaiter callback = new RecordingWaiter();
+        OcclusionRequestGuard<TestRect>.Pending pending = guard.begin(callback);
+
+        pending.complete(TestRect.list(new TestRect(5, 5, 6, 6)));
+        pending.fail();
+        pending.complete(TestRect.list());
+        assertEquals(1, callback.calls());
+        assertEquals(TestRect.list(new TestRect(5, 5, 6, 6)), callback.answers.get(0));
+        assertEquals(0L, guard.stats().get("fallbacks"));
+    }
+
+    @Test
+    public void failureAnswersWithTheFallback() {
+        RecordingWaiter callback = new RecordingWaiter();
+        OcclusionRequestGuard<TestRect>.Pending pending = guard.begin(callback);
+
+        pending.fail();
+        pending.complete(TestRect.list(new TestRect(5, 5, 6, 6)));
+        assertEquals(1, callback.calls());
+        assertEquals(TestRect.list(new TestRect(1, 1, 2, 2)), callback.answers.get(0));
+        assertEquals(1L, guard.stats().get("fallbacks"));
+    }
+
+    @Test
+    public void deadlineAnswersWithTheFallbackOnce() throws InterruptedException {
+        guard.setDeadlineMs(10);
+        CountDownLatch answered = new CountDownLatch(1);
+        RecordingWaiter callback = new RecordingWaiter();
+        OcclusionRequestGuard<TestRect>.Pending pending = guard.begin(rects -> {
+            callback.onRectsReady(rects);
+            answered.countDown();
+        });
+
+        assertTrue(answered.await(5, TimeUnit.SECONDS));
+        pending.complete(TestRect.list(new TestRect(5, 5, 6, 6)));
+        pending.fail();
+        assertEquals(1, callback.calls());
+        assertEquals(TestRect.list(new TestRect(1, 1, 2, 2)), callback.answers.get(0));
+        assertEquals(1L, guard.stats().get("timeouts"));
+    }
+
+    @Test
+    public void noDeadlineWaitsForDart() throws InterruptedException {
+        guard.setDeadlineMs(0);
+        RecordingWaiter callback = new RecordingWaiter();
+        OcclusionRequestGuard<TestRect>.Pending pending = guard.begin(callback);
+
+        Thread.sleep(50);
+        assertEquals(0, callback.calls());
+        pending.complete(TestRect.list());
+        assertEquals(1, callback.calls());
+    }
+}
@@ -0,0 +1,109 @@
+package com.uxcam.flutteruxcam;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+public class PropertyWriteCacheTest {
+    private final List<String> writes = new ArrayList<>();
+    private final PropertyWriteCache cache = new PropertyWriteCache(new PropertyWriteCache.Writer() {
+        @Override
+        public void setUserIdentity(String userIdentity) {
+            writes.add("identity=" + userIdentity);
+        }
+
+        @Override
+        public void setUserProperty(String key, String value) {
+            writes.add("user." + key + "=" + value);
+        }
+
+        @Override
+        public void setSessionProperty(String key, String value) {
+            writes.add("session." + key + "=" + value);
+        }
+
+        @Override
+        public void tagScreenName(String screenName) {
+            writes.add("screen=" + screenName);
+        }
+    });
+
+    @Test
+    public void unchangedValuesAreDropped() {
+        assertTrue(cache.setUserProperty("plan", "pro"));
+        assertFalse(cache.setUserProperty("plan", "pro"));
+        assertTrue(cache.setSessionProperty("plan", "pro"));
+        assertTrue(cache.setUserIdentity(null));
+        assertFalse(cache.setUserIdentity(null));
+        cache.flush();
+        assertFalse(cache.setUserProperty("plan", "pro"));
+        cache.flush();
+
+        assertEquals(Arrays.asList("identity=null", "user.plan=pro", "session.plan=pro"), writes);
+        assertEquals(3L, cache.stats().get("hits"));
+        assertEquals(3L, cache.stats().get("misses"));
+        assertEquals(1L, cache.stats().get("flushes"));
+    }
+
+    @Test
+    public void burstsWriteTheLatestValueOnce() {
+        cache.setUserProperty("step", "1");
+        cache.setUserProperty("step", "2");
+        cache.setUserProperty("other", "x");
+        cache.setUserProperty("step", "3");
+        assertEquals(0, writes.size());
+
+        cache.flush();
+        assertEquals(Arrays.asList("user.step=3", "user.other=x"), writes);
+    }
+
+    @Test
+    public void screenNameIsWrittenAtOnceAfterPendingWrites() {
+        cache.setSessionProperty("cart", "1");
+        assertTrue(cache.tagScreenName("Home"));
+        assertEquals(Arrays.asList("session.cart=1", "screen=Home"), writes);
+
+        assertFalse(cache.tagScreenName("Home"));
+        assertTrue(cache.tagScreenName("Cart"));
+        assertEquals(Arrays.asList("session.cart=1", "screen=Home", "screen=Cart"), writes);
+    }
+
+    @Test
+    public void resetSessionForgetsSessionValuesAndScreenName() {
+        cache.setUserIdentity("u1");
+        cache.setUserProperty("plan", "pro");
+        cache.setSessionProperty("cart", "1");
+        cache.tagScreenName("Home");
+        writes.clear();
+
+        cache.setSessionProperty("cart", "2");
+        cache.resetSession();
+        assertEquals(Arrays.asList("session.cart=2"), writes);
+
+        assertFalse(cache.setUserIdentity("u1"));
+        assertFalse(cache.setUserProperty("plan", "pro"));
+        assertTrue(cache.setSessionProperty("cart", "2"));
+        assertTrue(cache.tagScreenName("Home"));
+    }
+
+    @Test
+    public void resetForgetsEverything() {
+        cache.setUserIdentity("u1");
+        cache.setUserProperty("plan", "pro");
+        cache.setSessionProperty("cart", "1");
+        cache.tagScreenName("Home");
+        cache.reset();
+        writes.clear();
+
+        assertTrue(cache.setUserIdentity("u1"));
+        assertTrue(cache.setUserProperty("plan", "pro"));
+        assertTrue(cache.setSessionProperty("cart", "1"));
+        assertTrue(cache.tagScreenName("Home"));
+        assertEquals(Arrays.asList("identity=u1", "user.plan=pro", "session.cart=1", "screen=Home"), writes);
+    }
+}
@@ -0,0 +1,32 @@
+package com.uxcam.flutteruxcam;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Waiter and callback that records every answer it receives, copied out of any pool.
+ */
+final class RecordingWaiter implements OcclusionRequestCoalescer.Waiter<TestRect>,
+        OcclusionDelegate.Callback<TestRect> {
+    final List<List<TestRect>> answers = new ArrayList<>();
+    int failures = 0;
+
+    @Override
+    public synchronized void complete(List<TestRect> rects) {
+        answers.add(TestRect.copy(rects));
+    }
+
+    @Override
+    public synchronized void fail() {
+        failures++;
+    }
+
+    @Override
+    public void onRectsReady(List<TestRect> rects) {
+        complete(rects);
+    }
+
+    synchronized int calls() {
+        return answers.size() + failures;
+    }
+}
@@ -0,0 +1,95 @@
+package com.uxcam.flutteruxcam;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class SharedOcclusionBufferTest {
+    private static final int SLOTS = 4;
+
+    private final SharedOcclusionBuffer shared = SharedOcclusionBuffer.allocate(SLOTS);
+    private final DartSharedWriter writer = new DartSharedWriter(shared.buffer(), SLOTS);
+
+    @Test
+    public void nothingPublishedIsInactive() {
+        assertEquals(SharedOcclusionBuffer.INACTIVE, shared.read());
+        assertEquals(0, shared.seq());
+    }
+
+    @Test
+    public void readsWhatDartPublished() {
+        writer.publish(new float[][]{{3, 1.5f, 2, 30, 40}, {9, -20, -10, 0, 0}}, 1_700_000_000_123L);
+
+        assertEquals(2, shared.read());
+        assertEquals(1, shared.seq());
+        assertEquals(1_700_000_000_123L, shared.writtenAtMs());
+        assertEquals(3, shared.id(0));
+        assertEquals(1.5f, shared.left(0), 0f);
+        assertEquals(40f, shared.bottom(0), 0f);
+        assertEquals(9, shared.id(1));
+        assertEquals(-20f, shared.left(1), 0f);
+        assertEquals(0, shared.type(1));
+    }
+
+    @Test
+    public void checksumMatchesDartForEveryBufferAndAcrossTheWrap() {
+        float[][] rects = {{1, -0.5f, -1, 1e9f, Float.MAX_VALUE}, {Integer.MAX_VALUE, 0, 0, 1, 1}};
+        long[] times = {0, 1, -1, 0x7fffffffL, 0x80000000L, 1_700_000_000_123L, Long.MAX_VALUE};
+        for (long time : times) {
+            writer.publish(rects, time);
+            assertEquals("writtenAt " + time, 2, shared.read());
+        }
+
+        writer.setSeq(0x7fffffff - 1);
+        writer.publish(rects, 5);
+        assertEquals(2, shared.read());
+        assertEquals(0x7fffffff, shared.seq());
+        writer.publish(rects, 6);
+        assertEquals(2, shared.read());
+        assertEquals(2, shared.seq());
+        assertEquals(6, shared.writtenAtMs());
+    }
+
+    @Test
+    public void inactiveCountIsReported() {
+        writer.publish(new float[][]{{1, 0, 0, 1, 1}}, 10);
+        writer.deactivate(11);
+
+        assertEquals(SharedOcclusionBuffer.INACTIVE, shared.read());
+        assertEquals(2, shared.seq());
+    }
+
+    @Test
+    public void checksumMismatchIsTorn() {
+        int base = writer.publish(new float[][]{{1, 0, 0, 10, 10}}, 10);
+        // a rect word changed after the checksum was taken, as by a later write in progress
+        shared.buffer().putFloat(base + SharedOcclusionBuffer.BUFFER_HEADER_SIZE + 16, 11f);
+
+        assertEquals(SharedOcclusionBuffer.TORN, shared.read());
+        assertEquals(1L, shared.stats().get("tornReads"));
+    }
+
+    @Test
+    public void bufferBeingRewrittenIsTorn() {
+        writer.publish(new float[][]{{1, 0, 0, 10, 10}}, 10);
+        writer.publish(new float[][]{{1, 0, 0, 20, 20}}, 20);
+        // Dart has started seq 3 in buffer 1 while native still sees seq 2 published
+        writer.writeWithoutPublishing(new float[][]{{1, 0, 0, 30, 30}}, 30);
+        assertEquals(1, shared.read());
+        assertEquals(20f, shared.right(0), 0f);
+
+        // the header names seq 3 while buffer 1 still holds the cleared seq of an unfinished write
+        shared.buffer().putInt(SharedOcclusionBuffer.SEQ_OFFSET, 3);
+        assertEquals(SharedOcclusionBuffer.TORN, shared.read());
+        assertEquals(2, shared.seq());
+        assertEquals(20f, shared.right(0), 0f);
+    }
+
+    @Test
+    public void resetMarksNothingPublished() {
+        writer.publish(new float[][]{{1, 0, 0, 10, 10}}, 10);
+        shared.reset();
+
+        assertEquals(SharedOcclusionBuffer.INACTIVE, shared.read());
+    }
+}
@@ -0,0 +1,46 @@
+package com.uxcam.flutteruxcam;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link Platform} with a manual clock and frames that only run when the test asks.
+ */
+final class TestPlatform implements Platform {
+    long nowMs = 1000;
+    final List<Runnable> frameTasks = new ArrayList<>();
+
+    /**
+     * Runs the tasks scheduled so far; tasks they schedule wait for the following frame.
+     */
+    void runFrame() {
+        List<Runnable> tasks = new ArrayList<>(frameTasks);
+        frameTasks.clear();
+        for (Runnable task : tasks) {
+            task.run();
+        }
+    }
+
+    @Override
+    public long uptimeMillis() {
+        return nowMs;
+    }
+
+    @Override
+    public long elapsedNanos() {
+        return nowMs * 1_000_000;
+    }
+
+    @Override
+    public void runOnNextFrame(Runnable task) {
+        frameTasks.add(task);
+    }
+
+    @Override
+    public void logInfo(String message) {
+    }
+
+    @Override
+    public void logError(String message, Throwable error) {
+    }
+}
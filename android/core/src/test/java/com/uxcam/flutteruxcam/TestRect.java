@@ -0,0 +1,95 @@
+package com.uxcam.flutteruxcam;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Int rect with value equality, standing in for {@code android.graphics.Rect} in the tests.
+ */
+final class TestRect {
+    static final RectOps<TestRect> OPS = new RectOps<TestRect>() {
+        @Override
+        public TestRect create(int left, int top, int right, int bottom) {
+            return new TestRect(left, top, right, bottom);
+        }
+
+        @Override
+        public void set(TestRect rect, int left, int top, int right, int bottom) {
+            rect.left = left;
+            rect.top = top;
+            rect.right = right;
+            rect.bottom = bottom;
+        }
+
+        @Override
+        public int left(TestRect rect) {
+            return rect.left;
+        }
+
+        @Override
+        public int top(TestRect rect) {
+            return rect.top;
+        }
+
+        @Override
+        public int right(TestRect rect) {
+            return rect.right;
+        }
+
+        @Override
+        public int bottom(TestRect rect) {
+            return rect.bottom;
+        }
+
+        @Override
+        public void union(TestRect rect, TestRect other) {
+            set(rect, Math.min(rect.left, other.left), Math.min(rect.top, other.top),
+                    Math.max(rect.right, other.right), Math.max(rect.bottom, other.bottom));
+        }
+    };
+
+    int left;
+    int top;
+    int right;
+    int bottom;
+
+    TestRect(int left, int top, int right, int bottom) {
+        this.left = left;
+        this.top = top;
+        this.right = right;
+        this.bottom = bottom;
+    }
+
+    static List<TestRect> list(TestRect... rects) {
+        return new ArrayList<>(Arrays.asList(rects));
+    }
+
+    /**
+     * Copies {@code rects}, which may belong to a reusable pool.
+     */
+    static List<TestRect> copy(List<TestRect> rects) {
+        List<TestRect> copy = new ArrayList<>();
+        for (TestRect rect : rects) {
+            copy.add(new TestRect(rect.left, rect.top, rect.right, rect.bottom));
+        }
+        return copy;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof TestRect)) return false;
+        TestRect rect = (TestRect) other;
+        return left == rect.left && top == rect.top && right == rect.right && bottom == rect.bottom;
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(new int[]{left, top, right, bottom});
+    }
+
+    @Override
+    public String toString() {
+        return "[" + left + ", " + top + ", " + right + ", " + bottom + "]";
+    }
+}
@@ -0,0 +1,178 @@
+package com.uxcam.flutteruxcam;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class UploadSchedulerTest {
+    private final TestPlatform platform = new TestPlatform();
+    private final ManualTimer timer = new ManualTimer(platform);
+    private boolean connected = true;
+    private boolean unmetered = true;
+    private boolean charging = false;
+    private boolean idle = true;
+    private boolean recording = false;
+    private int pending = 2;
+    private int uploads = 0;
+
+    private final UploadScheduler scheduler = new UploadScheduler(platform, new UploadScheduler.Conditions() {
+        @Override
+        public boolean isConnected() {
+            return connected;
+        }
+
+        @Override
+        public boolean isUnmetered() {
+            return unmetered;
+        }
+
+        @Override
+        public boolean isCharging() {
+            return charging;
+        }
+
+        @Override
+        public boolean isIdle() {
+            return idle;
+        }
+    }, new UploadScheduler.Uploader() {
+        @Override
+        public int pendingSessions() {
+            return pending;
+        }
+
+        @Override
+        public boolean startUpload() {
+            if (recording) return false;
+            uploads++;
+            return true;
+        }
+    }, timer);
+
+    @Test
+    public void requestsWaitForTheConditions() {
+        idle = false;
+        unmetered = false;
+        scheduler.request();
+        timer.advance(0);
+        assertEquals("waiting for unmetered network", scheduler.stats().get("lastOutcome"));
+
+        unmetered = true;
+        scheduler.poke();
+        timer.advance(0);
+        assertEquals("waiting for idle", scheduler.stats().get("lastOutcome"));
+        assertEquals(0, uploads);
+
+        // conditions are checked again on their own after a while
+        idle = true;
+        timer.advance(UploadScheduler.CHECK_INTERVAL_MS);
+        assertEquals(1, uploads);
+        assertEquals(0, scheduler.stats().get("queued"));
+        assertEquals(2L, scheduler.stats().get("waits"));
+    }
+
+    @Test
+    public void chargingIsOnlyRequiredWhenConfigured() {
+        scheduler.configure(true, true, true, UploadScheduler.DEFAULT_MAX_BACKLOG);
+        scheduler.request();
+        timer.advance(0);
+        assertEquals("waiting for charging", scheduler.stats().get("lastOutcome"));
+
+        scheduler.configure(true, false, true, UploadScheduler.DEFAULT_MAX_BACKLOG);
+        timer.advance(0);
+        assertEquals(1, uploads);
+    }
+
+    @Test
+    public void backlogEvictsTheOldestRequests() {
+        connected = false;
+        scheduler.configure(true, false, true, 3);
+        for (int i = 0; i < 5; i++) {
+            scheduler.request();
+        }
+        assertEquals(3, scheduler.stats().get("queued"));
+        assertEquals(2L, scheduler.stats().get("evicted"));
+
+        scheduler.configure(true, false, true, 1);
+        assertEquals(1, scheduler.stats().get("queued"));
+        assertEquals(4L, scheduler.stats().get("evicted"));
+    }
+
+    @Test
+    public void oneRunServesTheWholeBatch() {
+        scheduler.request();
+        scheduler.request();
+        scheduler.request();
+        timer.advance(0);
+        assertEquals(1, uploads);
+        assertEquals(true, scheduler.stats().get("uploading"));
+
+        pending = 0;
+        timer.advance(UploadScheduler.VERIFY_DELAY_MS);
+        assertEquals(1L, scheduler.stats().get("succeeded"));
+        assertEquals(2L, scheduler.stats().get("uploadedSessions"));
+        assertEquals(0, scheduler.stats().get("queued"));
+    }
+
+    @Test
+    public void failedRunsBackOffExponentially() {
+        scheduler.request();
+        timer.advance(0);
+        timer.advance(UploadScheduler.VERIFY_DELAY_MS);
+        assertEquals(1L, scheduler.stats().get("failed"));
+        assertEquals(UploadScheduler.BASE_BACKOFF_MS, scheduler.stats().get("nextAttemptInMs"));
+
+        timer.advance(UploadScheduler.BASE_BACKOFF_MS - 1);
+        assertEquals(1, uploads);
+        timer.advance(1);
+        assertEquals(2, uploads);
+
+        timer.advance(UploadScheduler.VERIFY_DELAY_MS);
+        assertEquals(2, scheduler.stats().get("consecutiveFailures"));
+        assertEquals(2 * UploadScheduler.BASE_BACKOFF_MS, scheduler.stats().get("nextAttemptInMs"));
+
+        // a success clears the backoff; the session left over goes out with the next batch
+        timer.advance(2 * UploadScheduler.BASE_BACKOFF_MS);
+        pending = 1;
+        timer.advance(UploadScheduler.VERIFY_DELAY_MS);
+        assertEquals(0, scheduler.stats().get("consecutiveFailures"));
+        assertEquals(1L, scheduler.stats().get("uploadedSessions"));
+        assertEquals(4, uploads);
+    }
+
+    @Test
+    public void backoffIsCapped() {
+        scheduler.request();
+        timer.advance(0);
+        for (int i = 0; i < 12; i++) {
+            timer.advance(UploadScheduler.VERIFY_DELAY_MS);
+            timer.advance((Long) scheduler.stats().get("nextAttemptInMs"));
+        }
+        assertEquals(13, uploads);
+        timer.advance(UploadScheduler.VERIFY_DELAY_MS);
+        assertEquals(UploadScheduler.MAX_BACKOFF_MS, scheduler.stats().get("nextAttemptInMs"));
+    }
+
+    @Test
+    public void recordingSessionIsNotEnded() {
+        recording = true;
+        scheduler.request();
+        timer.advance(0);
+        assertEquals("waiting for session end", scheduler.stats().get("lastOutcome"));
+        assertEquals(1, scheduler.stats().get("queued"));
+
+        recording = false;
+        timer.advance(UploadScheduler.CHECK_INTERVAL_MS);
+        assertEquals(1, uploads);
+    }
+
+    @Test
+    public void nothingPendingClearsTheQueue() {
+        pending = 0;
+        scheduler.request();
+        timer.advance(0);
+        assertEquals("nothing pending", scheduler.stats().get("lastOutcome"));
+        assertEquals(0, scheduler.stats().get("queued"));
+        assertEquals(0, uploads);
+    }
+}
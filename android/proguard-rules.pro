@@ -0,0 +1,4 @@
+# JNI looks native methods up by class and method name.
+-keepclasseswithmembernames class com.uxcam.flutteruxcam.** {
+    native <methods>;
+}
@@ -0,0 +1,9 @@
+#include <jni.h>
+#include <stdint.h>
+
+/* Native address of a direct ByteBuffer, or 0 when it has none. */
+JNIEXPORT jlong JNICALL
+Java_com_uxcam_flutteruxcam_DirectBuffers_nativeAddress(JNIEnv *env, jclass clazz, jobject buffer) {
+    void *address = (*env)->GetDirectBufferAddress(env, buffer);
+    return (jlong) (intptr_t) address;
+}
@@ -0,0 +1,300 @@
+package com.uxcam.flutteruxcam;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.Choreographer;
+
+import com.uxcam.UXCam;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Picks a capture tier from memory pressure and frame overruns, for the whole process.
+ *
+ * Trim-memory callbacks raise the memory tier at once; it steps back down one tier after
+ * {@link #MEMORY_RELAX_MS} without further pressure. Frame intervals are sampled with a
+ * Choreographer callback and judged per one second window: the frame tier rises after
+ * {@link #WINDOWS_TO_RAISE} janky windows and falls one step after {@link #WINDOWS_TO_LOWER}
+ * clean ones. The tier in effect is the higher of the two. Optionally screen recording is paused
+ * at a given tier and resumed once the tier has stayed below it for {@link #RESUME_DELAY_MS}.
+ * Everything runs on the main thread; the frame callback only runs while the mode is enabled and
+ * some UI of the app is visible, so it does not wake up for every vsync in the background.
+ */
+final class AdaptiveCaptureController implements ComponentCallbacks2 {
+    static final int TIER_NORMAL = 0;
+    static final int TIER_REDUCED = 1;
+    static final int TIER_MINIMAL = 2;
+
+    // Smallest gap between occlusion queries one engine sends to Dart, per tier.
+    private static final long[] MIN_REQUEST_INTERVAL_MS = {0, 50, 200};
+
+    private static final long FRAME_WINDOW_NANOS = 1_000_000_000L;
+    // A frame counts as janky when it took longer than two 60 Hz frames.
+    private static final long JANK_FRAME_NANOS = 33_000_000L;
+    // A longer gap means nothing was drawing, e.g. the app was in the background.
+    private static final long IDLE_GAP_NANOS = 1_000_000_000L;
+    private static final int MIN_FRAMES_PER_WINDOW = 10;
+    private static final float REDUCED_JANK_RATIO = 0.25f;
+    private static final float MINIMAL_JANK_RATIO = 0.5f;
+    private static final float CLEAN_JANK_RATIO = 0.05f;
+    private static final int WINDOWS_TO_RAISE = 2;
+    private static final int WINDOWS_TO_LOWER = 3;
+    private static final long MEMORY_RELAX_MS = 30_000;
+    private static final long RESUME_DELAY_MS = 5_000;
+
+    interface Listener {
+        /**
+         * Called on the main thread when the tier in effect changes.
+         */
+        void onTierChanged(int tier, String reason);
+    }
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+    private boolean callbacksRegistered = false;
+
+    private boolean enabled = false;
+    private boolean hidden = false;
+    private int pauseAtTier = -1;
+    private boolean pausedRecording = false;
+    private int tier = TIER_NORMAL;
+    private int memoryTier = TIER_NORMAL;
+    private long memoryTierAtMs = 0;
+    private int frameTier = TIER_NORMAL;
+
+    private long lastFrameNanos = 0;
+    private long windowStartNanos = 0;
+    private int windowFrames = 0;
+    private int windowJankyFrames = 0;
+    private int raiseStreak = 0;
+    private int lowerStreak = 0;
+
+    private long trimEvents = 0;
+    private long jankyWindows = 0;
+    private long tierChanges = 0;
+    private long recordingPauses = 0;
+
+    private final Choreographer.FrameCallback frameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            if (!enabled || hidden) return;
+            onFrame(frameTimeNanos);
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    };
+
+    private final AppVisibility.Listener visibilityListener = new AppVisibility.Listener() {
+        @Override
+        public void onPaused() {
+        }
+
+        @Override
+        public void onHidden() {
+            hidden = true;
+            Choreographer.getInstance().removeFrameCallback(frameCallback);
+        }
+
+        @Override
+        public void onStarted() {
+            if (!hidden) return;
+            hidden = false;
+            if (enabled) {
+                resetFrameWindow();
+                Choreographer.getInstance().postFrameCallback(frameCallback);
+            }
+        }
+    };
+
+    private final Runnable resumeRecording = () -> {
+        if (pausedRecording && (pauseAtTier < 0 || tier < pauseAtTier)) {
+            pausedRecording = false;
+            UXCam.resumeScreenRecording();
+        }
+    };
+
+    void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Turns the mode on or off. {@code pauseAtTier} is the tier at which screen recording is
+     * paused, or -1 to never pause it. Disabling drops back to {@link #TIER_NORMAL} at once.
+     */
+    void configure(Context context, boolean enabled, int pauseAtTier) {
+        if (enabled && !callbacksRegistered && context != null) {
+            context.getApplicationContext().registerComponentCallbacks(this);
+            AppVisibility.register(context, visibilityListener);
+            callbacksRegistered = true;
+        }
+        boolean wasEnabled = this.enabled;
+        this.enabled = enabled;
+        this.pauseAtTier = pauseAtTier;
+
+        if (enabled && !wasEnabled && !hidden) {
+            resetFrameWindow();
+            Choreographer.getInstance().postFrameCallback(frameCallback);
+        } else if (!enabled) {
+            Choreographer.getInstance().removeFrameCallback(frameCallback);
+            memoryTier = TIER_NORMAL;
+            frameTier = TIER_NORMAL;
+            raiseStreak = 0;
+            lowerStreak = 0;
+        }
+        update("configure");
+        if (!enabled || pauseAtTier < 0) {
+            mainHandler.removeCallbacks(resumeRecording);
+            resumeRecording.run();
+        }
+    }
+
+    static long minRequestIntervalMs(int tier) {
+        return MIN_REQUEST_INTERVAL_MS[tier];
+    }
+
+    Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("tier", tier);
+        stats.put("memoryTier", memoryTier);
+        stats.put("frameTier", frameTier);
+        stats.put("recordingPaused", pausedRecording);
+        stats.put("trimEvents", trimEvents);
+        stats.put("jankyWindows", jankyWindows);
+        stats.put("tierChanges", tierChanges);
+        stats.put("recordingPauses", recordingPauses);
+        return stats;
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        if (!enabled) return;
+        int pressure;
+        if (level == TRIM_MEMORY_UI_HIDDEN) {
+            // only means the app left the foreground, see visibilityListener
+            return;
+        } else if (level >= TRIM_MEMORY_MODERATE || level == TRIM_MEMORY_RUNNING_CRITICAL) {
+            pressure = TIER_MINIMAL;
+        } else {
+            pressure = TIER_REDUCED;
+        }
+        onMemoryPressure(pressure);
+    }
+
+    @Override
+    public void onLowMemory() {
+        if (!enabled) return;
+        onMemoryPressure(TIER_MINIMAL);
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+    }
+
+    private void onMemoryPressure(int pressure) {
+        trimEvents++;
+        if (pressure >= memoryTier) {
+            memoryTier = pressure;
+            memoryTierAtMs = SystemClock.uptimeMillis();
+        }
+        update("memory");
+    }
+
+    private void onFrame(long frameTimeNanos) {
+        if (lastFrameNanos != 0) {
+            long interval = frameTimeNanos - lastFrameNanos;
+            if (interval >= IDLE_GAP_NANOS) {
+                resetFrameWindow();
+            } else {
+                windowFrames++;
+                if (interval > JANK_FRAME_NANOS) windowJankyFrames++;
+            }
+        }
+        lastFrameNanos = frameTimeNanos;
+        if (windowStartNanos == 0) {
+            windowStartNanos = frameTimeNanos;
+        } else if (frameTimeNanos - windowStartNanos >= FRAME_WINDOW_NANOS) {
+            closeFrameWindow();
+            windowStartNanos = frameTimeNanos;
+        }
+    }
+
+    private void closeFrameWindow() {
+        int frames = windowFrames;
+        int janky = windowJankyFrames;
+        windowFrames = 0;
+        windowJankyFrames = 0;
+
+        if (frames >= MIN_FRAMES_PER_WINDOW) {
+            float ratio = (float) janky / frames;
+            int target = ratio >= MINIMAL_JANK_RATIO ? TIER_MINIMAL
+                    : ratio >= REDUCED_JANK_RATIO ? TIER_REDUCED : TIER_NORMAL;
+            if (target > TIER_NORMAL) jankyWindows++;
+
+            if (target > frameTier) {
+                lowerStreak = 0;
+                if (++raiseStreak >= WINDOWS_TO_RAISE) {
+                    frameTier = target;
+                    raiseStreak = 0;
+                }
+            } else if (ratio <= CLEAN_JANK_RATIO && frameTier > TIER_NORMAL) {
+                raiseStreak = 0;
+                if (++lowerStreak >= WINDOWS_TO_LOWER) {
+                    frameTier--;
+                    lowerStreak = 0;
+                }
+            } else {
+                raiseStreak = 0;
+                lowerStreak = 0;
+            }
+        }
+
+        if (memoryTier > TIER_NORMAL && SystemClock.uptimeMillis() - memoryTierAtMs >= MEMORY_RELAX_MS) {
+            memoryTier--;
+            memoryTierAtMs = SystemClock.uptimeMillis();
+        }
+        update("frames");
+    }
+
+    private void resetFrameWindow() {
+        lastFrameNanos = 0;
+        windowStartNanos = 0;
+        windowFrames = 0;
+        windowJankyFrames = 0;
+    }
+
+    private void update(String reason) {
+        int next = Math.max(memoryTier, frameTier);
+        if (next == tier) return;
+        tier = next;
+        tierChanges++;
+        updateRecording();
+        for (Listener listener : listeners) {
+            listener.onTierChanged(tier, reason);
+        }
+    }
+
+    private void updateRecording() {
+        if (pauseAtTier < 0) return;
+        if (tier >= pauseAtTier) {
+            mainHandler.removeCallbacks(resumeRecording);
+            if (!pausedRecording && UXCam.isRecording()) {
+                UXCam.pauseScreenRecording();
+                pausedRecording = true;
+                recordingPauses++;
+            }
+        } else if (pausedRecording) {
+            mainHandler.removeCallbacks(resumeRecording);
+            mainHandler.postDelayed(resumeRecording, RESUME_DELAY_MS);
+        }
+    }
+}
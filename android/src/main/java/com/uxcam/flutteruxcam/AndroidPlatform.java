@@ -0,0 +1,45 @@
+package com.uxcam.flutteruxcam;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.Choreographer;
+
+/**
+ * {@link Platform} backed by the Android framework.
+ */
+final class AndroidPlatform implements Platform {
+    static final AndroidPlatform INSTANCE = new AndroidPlatform();
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private AndroidPlatform() {
+    }
+
+    @Override
+    public long uptimeMillis() {
+        return SystemClock.uptimeMillis();
+    }
+
+    @Override
+    public long elapsedNanos() {
+        return SystemClock.elapsedRealtimeNanos();
+    }
+
+    @Override
+    public void runOnNextFrame(Runnable task) {
+        // Choreographer is per thread, so hop to the main thread first
+        mainHandler.post(() -> Choreographer.getInstance().postFrameCallback(frameTimeNanos -> task.run()));
+    }
+
+    @Override
+    public void logInfo(String message) {
+        Log.i(FlutterUxcamPlugin.TAG, message);
+    }
+
+    @Override
+    public void logError(String message, Throwable error) {
+        Log.e(FlutterUxcamPlugin.TAG, message, error);
+    }
+}
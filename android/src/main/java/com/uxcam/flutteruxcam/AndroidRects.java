@@ -0,0 +1,48 @@
+package com.uxcam.flutteruxcam;
+
+import android.graphics.Rect;
+
+/**
+ * {@link RectOps} for {@code android.graphics.Rect}, the type the SDK masks.
+ */
+final class AndroidRects implements RectOps<Rect> {
+    static final AndroidRects INSTANCE = new AndroidRects();
+
+    private AndroidRects() {
+    }
+
+    @Override
+    public Rect create(int left, int top, int right, int bottom) {
+        return new Rect(left, top, right, bottom);
+    }
+
+    @Override
+    public void set(Rect rect, int left, int top, int right, int bottom) {
+        rect.set(left, top, right, bottom);
+    }
+
+    @Override
+    public int left(Rect rect) {
+        return rect.left;
+    }
+
+    @Override
+    public int top(Rect rect) {
+        return rect.top;
+    }
+
+    @Override
+    public int right(Rect rect) {
+        return rect.right;
+    }
+
+    @Override
+    public int bottom(Rect rect) {
+        return rect.bottom;
+    }
+
+    @Override
+    public void union(Rect rect, Rect other) {
+        rect.union(other);
+    }
+}
@@ -0,0 +1,150 @@
+package com.uxcam.flutteruxcam;
+
+import android.app.Activity;
+import android.app.ActivityManager;
+import android.app.Application;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.res.Configuration;
+import android.net.ConnectivityManager;
+import android.net.NetworkCapabilities;
+import android.net.NetworkInfo;
+import android.os.BatteryManager;
+import android.os.Build;
+import android.os.Bundle;
+
+import androidx.annotation.RequiresApi;
+
+/**
+ * {@link UploadScheduler.Conditions} read from the Android framework.
+ *
+ * The app counts as idle while it has no visible UI: from the start when the process is not
+ * visible, then from the moment its UI is hidden until an activity starts again. {@code onIdle}
+ * runs whenever the app becomes idle, so waiting uploads are checked right away. From API 23 on
+ * the network counts as connected once it is validated.
+ */
+final class AndroidUploadConditions implements UploadScheduler.Conditions, ComponentCallbacks2,
+        Application.ActivityLifecycleCallbacks {
+    private final Context context;
+    private final Runnable onIdle;
+    private volatile boolean idle;
+
+    AndroidUploadConditions(Context context, Runnable onIdle) {
+        this.context = context.getApplicationContext();
+        this.onIdle = onIdle;
+        this.idle = !isProcessVisible();
+        this.context.registerComponentCallbacks(this);
+        if (this.context instanceof Application) {
+            ((Application) this.context).registerActivityLifecycleCallbacks(this);
+        }
+    }
+
+    @Override
+    public boolean isConnected() {
+        try {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+                return hasCapability(NetworkCapabilities.NET_CAPABILITY_VALIDATED);
+            }
+            return isConnectedLegacy();
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public boolean isUnmetered() {
+        try {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+                return hasCapability(NetworkCapabilities.NET_CAPABILITY_NOT_METERED);
+            }
+            return !connectivity().isActiveNetworkMetered();
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public boolean isCharging() {
+        // sticky broadcast, nothing is registered
+        Intent battery = context.registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+        if (battery == null) return false;
+        int status = battery.getIntExtra(BatteryManager.EXTRA_STATUS, -1);
+        return status == BatteryManager.BATTERY_STATUS_CHARGING || status == BatteryManager.BATTERY_STATUS_FULL;
+    }
+
+    @Override
+    public boolean isIdle() {
+        return idle;
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        if (level == TRIM_MEMORY_UI_HIDDEN) {
+            idle = true;
+            onIdle.run();
+        }
+    }
+
+    @Override
+    public void onActivityStarted(Activity activity) {
+        idle = false;
+    }
+
+    @Override
+    public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+    }
+
+    @Override
+    public void onActivityResumed(Activity activity) {
+    }
+
+    @Override
+    public void onActivityPaused(Activity activity) {
+    }
+
+    @Override
+    public void onActivityStopped(Activity activity) {
+    }
+
+    @Override
+    public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+    }
+
+    @Override
+    public void onActivityDestroyed(Activity activity) {
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+    }
+
+    @Override
+    public void onLowMemory() {
+    }
+
+    @RequiresApi(Build.VERSION_CODES.M)
+    private boolean hasCapability(int capability) {
+        ConnectivityManager connectivity = connectivity();
+        NetworkCapabilities capabilities = connectivity.getNetworkCapabilities(connectivity.getActiveNetwork());
+        return capabilities != null && capabilities.hasCapability(capability);
+    }
+
+    // API 21 and 22 only
+    @SuppressWarnings("deprecation")
+    private boolean isConnectedLegacy() {
+        NetworkInfo network = connectivity().getActiveNetworkInfo();
+        return network != null && network.isConnected();
+    }
+
+    private static boolean isProcessVisible() {
+        ActivityManager.RunningAppProcessInfo process = new ActivityManager.RunningAppProcessInfo();
+        ActivityManager.getMyMemoryState(process);
+        return process.importance <= ActivityManager.RunningAppProcessInfo.IMPORTANCE_VISIBLE;
+    }
+
+    private ConnectivityManager connectivity() {
+        return (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+    }
+}
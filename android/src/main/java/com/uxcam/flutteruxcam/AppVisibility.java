@@ -0,0 +1,98 @@
+package com.uxcam.flutteruxcam;
+
+import android.app.Activity;
+import android.app.Application;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.os.Bundle;
+
+/**
+ * Reports when the app's activities pause, when all of its UI is hidden and when an activity
+ * starts again, from the callbacks of the application context. Callbacks run on the main thread.
+ */
+final class AppVisibility implements ComponentCallbacks2, Application.ActivityLifecycleCallbacks {
+    interface Listener {
+        /**
+         * An activity paused, e.g. on its way to the background.
+         */
+        void onPaused();
+
+        /**
+         * No UI of the app is visible any more.
+         */
+        void onHidden();
+
+        /**
+         * An activity started, e.g. when the app comes back to the foreground.
+         */
+        void onStarted();
+    }
+
+    private final Context context;
+    private final Listener listener;
+
+    private AppVisibility(Context context, Listener listener) {
+        this.context = context;
+        this.listener = listener;
+    }
+
+    static AppVisibility register(Context context, Listener listener) {
+        AppVisibility visibility = new AppVisibility(context.getApplicationContext(), listener);
+        visibility.context.registerComponentCallbacks(visibility);
+        if (visibility.context instanceof Application) {
+            ((Application) visibility.context).registerActivityLifecycleCallbacks(visibility);
+        }
+        return visibility;
+    }
+
+    void unregister() {
+        context.unregisterComponentCallbacks(this);
+        if (context instanceof Application) {
+            ((Application) context).unregisterActivityLifecycleCallbacks(this);
+        }
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        if (level == TRIM_MEMORY_UI_HIDDEN) listener.onHidden();
+    }
+
+    @Override
+    public void onActivityStarted(Activity activity) {
+        listener.onStarted();
+    }
+
+    @Override
+    public void onActivityPaused(Activity activity) {
+        listener.onPaused();
+    }
+
+    @Override
+    public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+    }
+
+    @Override
+    public void onActivityResumed(Activity activity) {
+    }
+
+    @Override
+    public void onActivityStopped(Activity activity) {
+    }
+
+    @Override
+    public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+    }
+
+    @Override
+    public void onActivityDestroyed(Activity activity) {
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+    }
+
+    @Override
+    public void onLowMemory() {
+    }
+}
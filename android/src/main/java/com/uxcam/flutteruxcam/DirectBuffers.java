@@ -0,0 +1,50 @@
+package com.uxcam.flutteruxcam;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Native addresses of direct buffers, through JNI {@code GetDirectBufferAddress}.
+ *
+ * <p>The library is only built when the app opts in with {@code uxcam.sharedOcclusionBuffer=true},
+ * so it being missing is the normal case: lookups then return 0 and callers stay on the channel.
+ */
+final class DirectBuffers {
+    private static volatile boolean loaded = load();
+
+    private DirectBuffers() {
+    }
+
+    /**
+     * Returns whether addresses can be looked up at all.
+     */
+    static boolean isAvailable() {
+        return loaded;
+    }
+
+    /**
+     * Returns the address of {@code buffer}'s memory, or 0 when it cannot be looked up.
+     */
+    static long address(ByteBuffer buffer) {
+        if (!loaded || !buffer.isDirect()) return 0;
+        try {
+            return nativeAddress(buffer);
+        } catch (UnsatisfiedLinkError e) {
+            // a library that loaded but lacks the symbol, e.g. a stale build
+            loaded = false;
+            AndroidPlatform.INSTANCE.logError("Unable to look up a direct buffer address", e);
+            return 0;
+        }
+    }
+
+    private static boolean load() {
+        try {
+            System.loadLibrary("flutter_uxcam");
+            return true;
+        } catch (UnsatisfiedLinkError | SecurityException e) {
+            AndroidPlatform.INSTANCE.logInfo("Shared occlusion buffer unavailable, flutter_uxcam library not loaded");
+            return false;
+        }
+    }
+
+    private static native long nativeAddress(ByteBuffer buffer);
+}
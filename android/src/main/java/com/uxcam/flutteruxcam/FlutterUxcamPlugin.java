@@ -1,37 +1,48 @@
 package com.uxcam.flutteruxcam;
 
 import android.app.Activity;
+import android.content.Context;
 import android.os.Build;
-import android.util.Log;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 
 import io.flutter.plugin.common.MethodCall;
 import io.flutter.plugin.common.MethodChannel;
 import io.flutter.plugin.common.MethodChannel.MethodCallHandler;
 import io.flutter.plugin.common.MethodChannel.Result;
 import io.flutter.plugin.common.BinaryMessenger;
+import io.flutter.plugin.common.BasicMessageChannel;
+import io.flutter.plugin.common.BinaryCodec;
+import io.flutter.plugin.common.StandardMethodCodec;
 import io.flutter.embedding.engine.plugins.FlutterPlugin;
 import io.flutter.embedding.engine.plugins.activity.ActivityAware;
 import io.flutter.embedding.engine.plugins.activity.ActivityPluginBinding;
 
 import com.uxcam.UXCam;
 import com.uxcam.screenshot.screenshotTaker.CrossPlatformDelegate;
-import com.uxcam.screenshot.screenshotTaker.OcclusionRectRequestListener;
-import com.uxcam.screenshot.screenshotTaker.OcclusionReadyCallback;
 import com.uxcam.internal.FlutterFacade;
-import com.uxcam.screenshot.model.UXCamBlur;
-import com.uxcam.screenshot.model.UXCamOverlay;
 import com.uxcam.screenshot.model.UXCamOcclusion;
 import com.uxcam.screenshot.model.UXCamOccludeAllTextFields;
 import com.uxcam.datamodel.UXConfig;
 
-import java.util.Collections;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.uxcam.flutteruxcam.MethodDispatcher.Queue.BACKGROUND;
+import static com.uxcam.flutteruxcam.MethodDispatcher.Queue.MAIN;
 import android.graphics.Rect;
 
 import org.json.JSONArray;
@@ -62,65 +73,219 @@ public class FlutterUxcamPlugin implements MethodCallHandler, FlutterPlugin, Act
     public static final String BOX_BLUR = "boxBlur";
     public static final String BOKEH_BLUR = "bokehBlur";
 
+    // identity and property writes queued within this window go out together
+    private static final long PROPERTY_FLUSH_DELAY_MS = 16;
+    private static final String REDACTED_GESTURE_CONTENT = "{occluded=true}";
+
+    // Shared by every engine in the process: the SDK has one occlusion listener.
+    private static final PluginMetrics METRICS = new PluginMetrics(AndroidPlatform.INSTANCE);
+    private static final OcclusionEngineRegistry<Rect> OCCLUSION_ENGINES =
+            new OcclusionEngineRegistry<>(AndroidPlatform.INSTANCE, AndroidRects.INSTANCE, METRICS);
+    private static final MethodDispatcher.Channel<MethodCall, Result> FLUTTER_CHANNEL =
+            new MethodDispatcher.Channel<MethodCall, Result>() {
+                @Override
+                public String method(MethodCall call) {
+                    return call.method;
+                }
+
+                @Override
+                public Object argument(MethodCall call, String name) {
+                    return call.argument(name);
+                }
+
+                @Override
+                public void error(Result result, String code, String message) {
+                    result.error(code, message, null);
+                }
+
+                @Override
+                public void notImplemented(Result result) {
+                    result.notImplemented();
+                }
+            };
+    private static final StartupPipeline STARTUP = new StartupPipeline();
+    private static final ScheduledExecutorService PROPERTY_WRITER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "uxcam-properties");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final AdaptiveCaptureController ADAPTIVE_CAPTURE = new AdaptiveCaptureController();
+    // the SDK keeps one pending session store; created with the first engine
+    private static UploadScheduler uploads;
+    // shared occlusion buffers of detached engines, kept until their isolates are gone
+    private static final Set<SharedOcclusionBuffer> RETIRED_OCCLUSION_BUFFERS =
+            Collections.synchronizedSet(new HashSet<SharedOcclusionBuffer>());
+
     /**
      * Plugin registration.
      */
-    private static Activity activity;
+    private Activity activity;
 
     private CrossPlatformDelegate delegate;
+    private MethodDispatcher<MethodCall, Result> dispatcher;
 
     private final Handler mainHandler = new Handler(Looper.getMainLooper());
     private MethodChannel occlusionRequestChannel;
+    private BasicMessageChannel<ByteBuffer> occlusionUpdateChannel;
+    private BasicMessageChannel<ByteBuffer> gestureChannel;
+    private MethodChannel captureTierChannel;
+    private Context applicationContext;
+    private UploadScheduler uploadScheduler;
     private BinaryMessenger binaryMessenger;
-    private boolean occlusionListenerAttached = false;
+    private int occlusionEngineId = -1;
+    private final OcclusionRectStore<Rect> occlusionRectStore = new OcclusionRectStore<>(AndroidRects.INSTANCE);
+    // written by Dart directly when the shared occlusion buffer is enabled
+    private volatile SharedOcclusionBuffer sharedOcclusionBuffer;
+    private final OcclusionRequestCoalescer<Rect> occlusionRequestCoalescer =
+            new OcclusionRequestCoalescer<>(AndroidPlatform.INSTANCE, this::dispatchOcclusionRequest);
+    private final ExceptionReporter exceptionReporter = new ExceptionReporter(AndroidPlatform.INSTANCE,
+            new ExceptionReporter.Sink() {
+                @Override
+                public void reportException(Exception exception) {
+                    UXCam.reportExceptionEvent(exception);
+                }
+
+                @Override
+                public void reportException(Exception exception, Map<String, Object> properties) {
+                    UXCam.reportExceptionEvent(exception, properties);
+                }
+            });
+    private final GestureBuffer gestureBuffer = new GestureBuffer(GestureBuffer.DEFAULT_CAPACITY);
+    private final AtomicBoolean gestureDrainScheduled = new AtomicBoolean(false);
+    private final Runnable gestureDrain = () -> {
+        gestureDrainScheduled.set(false);
+        gestureBuffer.drain((x, y, timestampMs, content) -> appendGesture(x, y, content));
+    };
+    private volatile boolean hideOccludedGestures = true;
+    private volatile boolean redactOccludedGestures = false;
+    private final AtomicLong occludedGestureCount = new AtomicLong();
+    // only touched on the main thread, where Dart replies arrive
+    private final FlutterRectParser<Rect> rectParser =
+            new FlutterRectParser<>(AndroidPlatform.INSTANCE, AndroidRects.INSTANCE);
+    private final OcclusionModelCache occlusionModelCache = new OcclusionModelCache();
+    private final PropertyWriteCache propertyWriteCache = new PropertyWriteCache(new PropertyWriteCache.Writer() {
+        @Override
+        public void setUserIdentity(String userIdentity) {
+            UXCam.setUserIdentity(userIdentity);
+        }
+
+        @Override
+        public void setUserProperty(String key, String value) {
+            UXCam.setUserProperty(key, value);
+        }
+
+        @Override
+        public void setSessionProperty(String key, String value) {
+            UXCam.setSessionProperty(key, value);
+        }
+
+        @Override
+        public void tagScreenName(String screenName) {
+            FlutterFacade.getInstance().tagScreenName(screenName);
+        }
+    });
+    private final AppVisibility.Listener propertyLifecycle = new AppVisibility.Listener() {
+        @Override
+        public void onPaused() {
+            propertyWriteCache.flush();
+        }
+
+        @Override
+        public void onHidden() {
+            propertyWriteCache.resetSession();
+        }
+
+        @Override
+        public void onStarted() {
+        }
+    };
+    private AppVisibility appVisibility;
+    private final AtomicBoolean propertyFlushScheduled = new AtomicBoolean(false);
+    private final Runnable propertyFlush = () -> {
+        propertyFlushScheduled.set(false);
+        propertyWriteCache.flush();
+    };
+    private final AdaptiveCaptureController.Listener captureTierListener = (tier, reason) -> {
+        OCCLUSION_ENGINES.setMinRequestIntervalMs(AdaptiveCaptureController.minRequestIntervalMs(tier));
+        if (tier > AdaptiveCaptureController.TIER_NORMAL) {
+            rectParser.trim();
+            occlusionRectStore.trim();
+            gestureBuffer.trim();
+            OCCLUSION_ENGINES.trim();
+        }
+        MethodChannel channel = captureTierChannel;
+        if (channel != null) {
+            Map<String, Object> change = new HashMap<>();
+            change.put("tier", tier);
+            change.put("reason", reason);
+            channel.invokeMethod("onCaptureTierChanged", change);
+        }
+    };
 
     @Override
     public void onAttachedToEngine(@NonNull FlutterPluginBinding binding) {
         //general method channel for native and flutter communication
         binaryMessenger = binding.getBinaryMessenger();
+        dispatcher = buildDispatcher();
         final MethodChannel channel = new MethodChannel(binaryMessenger, "flutter_uxcam");
         channel.setMethodCallHandler(this);
 
-        delegate = UXCam.getDelegate();
-    }
+        //calls that don't need the main thread, handled in order on a background task queue
+        BinaryMessenger.TaskQueue taskQueue = binaryMessenger.makeBackgroundTaskQueue();
+        final MethodChannel backgroundChannel = new MethodChannel(binaryMessenger, "flutter_uxcam/background",
+                StandardMethodCodec.INSTANCE, taskQueue);
+        backgroundChannel.setMethodCallHandler((call, result) ->
+                handleMethodCall(call, result, MethodDispatcher.Queue.BACKGROUND));
+
+        //binary gesture stream from smart events, decoded off the main thread
+        gestureChannel = new BasicMessageChannel<>(binaryMessenger, "uxcam_gesture_v1", BinaryCodec.INSTANCE, taskQueue);
+        gestureChannel.setMessageHandler((message, reply) -> {
+            gestureBuffer.decode(message);
+            reply.reply(null);
+            scheduleGestureDrain();
+        });
 
-    @SuppressWarnings("unchecked")
-    private List<Rect> parseRectsFromFlutter(Object result) {
-        if (result == null) {
-            return Collections.emptyList();
-        }
+        //binary occlusion updates pushed from the Dart occlusion registry
+        occlusionUpdateChannel = new BasicMessageChannel<>(binaryMessenger, "uxcam_occlusion_v2", BinaryCodec.INSTANCE);
+        occlusionUpdateChannel.setMessageHandler((message, reply) -> {
+            occlusionRectStore.applyBatch(message, SystemClock.uptimeMillis());
+            reply.reply(null);
+        });
 
-        try {
-            List<Map<String, Object>> rectMaps = (List<Map<String, Object>>) result;
-            List<Rect> rects = new ArrayList<>(rectMaps.size());
-
-            for (Map<String, Object> rectMap : rectMaps) {
-                double left = ((Number) rectMap.get("left")).doubleValue();
-                double top = ((Number) rectMap.get("top")).doubleValue();
-                double right = ((Number) rectMap.get("right")).doubleValue();
-                double bottom = ((Number) rectMap.get("bottom")).doubleValue();
-
-                Rect rect = new Rect(
-                        (int) Math.floor(left),
-                        (int) Math.floor(top),
-                        (int) Math.ceil(right),
-                        (int) Math.ceil(bottom)
-                );
-
-                if (rect.width() > 0 && rect.height() > 0) {
-                    rects.add(rect);
-                }
-            }
+        //capture tier changes from the adaptive capture mode
+        captureTierChannel = new MethodChannel(binaryMessenger, "flutter_uxcam/capture_tier");
+        applicationContext = binding.getApplicationContext();
+        ADAPTIVE_CAPTURE.addListener(captureTierListener);
+        uploadScheduler = uploads(applicationContext);
+        appVisibility = AppVisibility.register(applicationContext, propertyLifecycle);
 
-            return rects;
-        } catch (Exception e) {
-            Log.e(TAG, "[Occlusion] Failed to parse rects: " + e.getMessage());
-            return Collections.emptyList();
-        }
+        delegate = UXCam.getDelegate();
     }
 
     @Override
     public void onDetachedFromEngine(@NonNull FlutterPluginBinding binding) {
+        if (gestureChannel != null) {
+            gestureChannel.setMessageHandler(null);
+            gestureChannel = null;
+        }
+        if (occlusionUpdateChannel != null) {
+            occlusionUpdateChannel.setMessageHandler(null);
+            occlusionUpdateChannel = null;
+        }
+        if (occlusionEngineId >= 0) {
+            OCCLUSION_ENGINES.unregister(occlusionEngineId);
+            occlusionEngineId = -1;
+        }
+        ADAPTIVE_CAPTURE.removeListener(captureTierListener);
+        captureTierChannel = null;
+        if (appVisibility != null) {
+            appVisibility.unregister();
+            appVisibility = null;
+        }
+        occlusionRequestCoalescer.abandon();
+        occlusionRequestChannel = null;
+        occlusionRectStore.clear();
+        retireSharedOcclusionBuffer();
     }
 
     @Override
@@ -139,89 +304,231 @@ public class FlutterUxcamPlugin implements MethodCallHandler, FlutterPlugin, Act
 
     @Override
     public void onDetachedFromActivity() {
+        activity = null;
     }
 
     @Override
     public void onMethodCall(MethodCall call, Result result) {
-        if (call.method.equals("getPlatformVersion")) {
-            result.success("Android " + Build.VERSION.RELEASE);
-        } else if (call.method.equals("registerEngine")) {
-            attachOcclusionListenerIfNeeded();
-            result.success(true);
-        } else if (call.method.equals("startWithKey")) {
+        handleMethodCall(call, result, MethodDispatcher.Queue.MAIN);
+    }
+
+    private void handleMethodCall(MethodCall call, Result result, MethodDispatcher.Queue from) {
+        long startNanos = METRICS.startTimer();
+        try {
+            // any other call may depend on the identity or properties set before it
+            if (!PropertyWriteCache.METHODS.contains(call.method)) {
+                propertyWriteCache.flush();
+            }
+            dispatcher.dispatch(call, result, from);
+        } finally {
+            METRICS.recordMethod(call.method, startNanos);
+        }
+    }
+
+    private MethodDispatcher<MethodCall, Result> buildDispatcher() {
+        MethodDispatcher<MethodCall, Result> dispatcher = new MethodDispatcher<>(FLUTTER_CHANNEL);
+        registerSessionMethods(dispatcher);
+        registerUserAndEventMethods(dispatcher);
+        registerPrivacyMethods(dispatcher);
+        registerOcclusionMethods(dispatcher);
+        registerDiagnosticMethods(dispatcher);
+        return dispatcher;
+    }
+
+    private void registerSessionMethods(MethodDispatcher<MethodCall, Result> dispatcher) {
+        dispatcher.register("getPlatformVersion", MAIN).to((call, result) ->
+                result.success("Android " + Build.VERSION.RELEASE));
+        dispatcher.register("registerEngine", MAIN).to((call, result) -> {
+            registerOcclusionSource();
+            Integer sharedSlots = call.argument("sharedOcclusionSlots");
+            result.success(sharedSlots == null ? true : shareOcclusionBuffer(sharedSlots));
+        });
+        dispatcher.register("startWithKey", MAIN).arg("key", String.class).to((call, result) -> {
             String key = call.argument("key");
-            UXCam.startApplicationWithKeyForCordova(activity, key);
-            addListener(result);
-            UXCam.pluginType("flutter", TYPE_VERSION);
-        } else if ("startNewSession".equals(call.method)) {
+            final Activity startActivity = activity;
+            propertyWriteCache.reset();
+            STARTUP.startNow(result, () -> {
+                UXCam.startApplicationWithKeyForCordova(startActivity, key);
+                UXCam.pluginType("flutter", TYPE_VERSION);
+            });
+        });
+        dispatcher.register("startWithConfiguration", MAIN).arg("config", Map.class).to((call, result) -> {
+            Map<String, Object> configMap = call.argument("config");
+            final Activity startActivity = activity;
+            propertyWriteCache.reset();
+            STARTUP.startDecoded(result, () -> buildConfig(configMap), config -> {
+                occlusionModelCache.removeStale();
+                UXCam.startWithConfigurationCrossPlatform(startActivity, config);
+                UXCam.pluginType("flutter", TYPE_VERSION);
+            });
+        });
+        dispatcher.register("updateConfiguration", MAIN).arg("config", Map.class).to((call, result) -> {
+            Map<String, Object> configMap = call.argument("config");
+            result.success(updateConfig(configMap));
+        });
+        dispatcher.register("startNewSession", MAIN).to((call, result) -> {
+            propertyWriteCache.reset();
             UXCam.startNewSession();
             result.success(null);
-        } else if ("stopSessionAndUploadData".equals(call.method)) {
+        });
+        dispatcher.register("stopSessionAndUploadData", MAIN).to((call, result) -> {
+            propertyWriteCache.reset();
             UXCam.stopSessionAndUploadData();
             result.success(null);
-        } else if ("occludeSensitiveScreen".equals(call.method)) {
-            boolean occludeSensitiveScreen = call.argument("key");
-            UXCam.occludeSensitiveScreen(occludeSensitiveScreen);
+        });
+        dispatcher.register("stopApplicationAndUploadData", MAIN).to((call, result) -> {
+            propertyWriteCache.reset();
+            // The session has to end now, and the SDK only ends one by uploading it. Whatever it
+            // leaves pending is uploaded by the scheduler under its conditions.
+            UXCam.stopSessionAndUploadData();
+            uploadScheduler.request();
             result.success(null);
-        } else if ("occludeSensitiveScreenWithoutGesture".equals(call.method)) {
-            boolean occludeSensitiveScreen = call.argument("key");
-            boolean withoutGesture = call.argument("withoutGesture");
-            UXCam.occludeSensitiveScreen(occludeSensitiveScreen, withoutGesture);
+        });
+        dispatcher.register("cancelCurrentSession", MAIN).to((call, result) -> {
+            propertyWriteCache.reset();
+            UXCam.cancelCurrentSession();
             result.success(null);
-        } else if (call.method.equals("occludeRectWithCoordinates")) {
-            JSONArray data = new JSONArray();
-            data.put(call.argument("x0"));
-            data.put(call.argument("y0"));
-            data.put(call.argument("x1"));
-            data.put(call.argument("y1"));
-            JSONArray coordinates = new JSONArray();
-            coordinates.put(data);
-            UXCam.flutterOccludeRectsOnNextFrame(coordinates);
+        });
+        dispatcher.register("isRecording", MAIN).to((call, result) ->
+                result.success(UXCam.isRecording()));
+        dispatcher.register("pauseScreenRecording", MAIN).to((call, result) -> {
+            UXCam.pauseScreenRecording();
             result.success(null);
-        } else if ("setMultiSessionRecord".equals(call.method)) {
+        });
+        dispatcher.register("resumeScreenRecording", MAIN).to((call, result) -> {
+            UXCam.resumeScreenRecording();
+            result.success(null);
+        });
+        dispatcher.register("configureAdaptiveCapture", MAIN)
+                .arg("enabled", Boolean.class).arg("pauseRecordingAtTier", Integer.class).to((call, result) -> {
+            boolean enabled = call.argument("enabled");
+            int pauseRecordingAtTier = call.argument("pauseRecordingAtTier");
+            ADAPTIVE_CAPTURE.configure(applicationContext, enabled, pauseRecordingAtTier);
+            result.success(null);
+        });
+        dispatcher.register("getAdaptiveCaptureStats", MAIN).to((call, result) ->
+                result.success(ADAPTIVE_CAPTURE.stats()));
+        dispatcher.register("setMultiSessionRecord", MAIN).arg("key", Boolean.class).to((call, result) -> {
             boolean multiSessionRecord = call.argument("key");
             UXCam.setMultiSessionRecord(multiSessionRecord);
             result.success(null);
-        } else if ("getMultiSessionRecord".equals(call.method)) {
-            result.success(UXCam.getMultiSessionRecord());
-        } else if ("occludeAllTextView".equals(call.method)) {
-            boolean occludeAllTextField = call.argument("key");
-            UXCam.occludeAllTextFields(occludeAllTextField);
+        });
+        dispatcher.register("getMultiSessionRecord", MAIN).to((call, result) ->
+                result.success(UXCam.getMultiSessionRecord()));
+        dispatcher.register("allowShortBreakForAnotherApp", MAIN).arg("key", Boolean.class).to((call, result) -> {
+            boolean enable = call.argument("key");
+            UXCam.allowShortBreakForAnotherApp(enable);
             result.success(null);
-        } else if ("occludeAllTextFields".equals(call.method)) {
-            boolean occludeAllTextField = call.argument("key");
-            UXCam.occludeAllTextFields(occludeAllTextField);
+        });
+        dispatcher.register("allowShortBreakForAnotherAppWithDuration", MAIN).arg("duration", Integer.class).to((call, result) -> {
+            int duration = call.argument("duration");
+            UXCam.allowShortBreakForAnotherApp(duration);
+            result.success(null);
+        });
+        dispatcher.register("resumeShortBreakForAnotherApp", MAIN).to((call, result) -> {
+            UXCam.resumeShortBreakForAnotherApp();
             result.success(null);
-        } else if ("tagScreenName".equals(call.method)) {
+        });
+        dispatcher.register("deletePendingUploads", BACKGROUND).to((call, result) -> {
+            UXCam.deletePendingUploads();
+            result.success(null);
+        });
+        dispatcher.register("pendingUploads", BACKGROUND).to((call, result) ->
+                result.success(UXCam.pendingUploads()));
+        dispatcher.register("uploadPendingSession", BACKGROUND).to((call, result) -> {
+            uploadScheduler.request();
+            result.success(null);
+        });
+        dispatcher.register("configureUploadScheduler", BACKGROUND)
+                .arg("requireUnmetered", Boolean.class).arg("requireCharging", Boolean.class)
+                .arg("requireIdle", Boolean.class).arg("maxBacklog", Integer.class).to((call, result) -> {
+            boolean requireUnmetered = call.argument("requireUnmetered");
+            boolean requireCharging = call.argument("requireCharging");
+            boolean requireIdle = call.argument("requireIdle");
+            int maxBacklog = call.argument("maxBacklog");
+            uploadScheduler.configure(requireUnmetered, requireCharging, requireIdle, maxBacklog);
+            result.success(null);
+        });
+        dispatcher.register("getUploadSchedulerStats", BACKGROUND).to((call, result) -> {
+            Map<String, Object> stats = uploadScheduler.stats();
+            stats.put("pendingSessions", UXCam.pendingUploads());
+            result.success(stats);
+        });
+        dispatcher.register("urlForCurrentUser", MAIN).to((call, result) -> {
+            String url = UXCam.urlForCurrentUser();
+            result.success(url);
+        });
+        dispatcher.register("urlForCurrentSession", MAIN).to((call, result) -> {
+            String url = UXCam.urlForCurrentSession();
+            result.success(url);
+        });
+        dispatcher.register("setPushNotificationToken", MAIN).arg("key", String.class).to((call, result) -> {
+            String token = call.argument("key");
+            UXCam.setPushNotificationToken(token);
+            result.success(null);
+        });
+    }
+
+    private void registerUserAndEventMethods(MethodDispatcher<MethodCall, Result> dispatcher) {
+        dispatcher.register("tagScreenName", MAIN).arg("key", String.class).to((call, result) -> {
             String eventName = call.argument("key");
-            FlutterFacade.getInstance().tagScreenName(eventName);
+            propertyWriteCache.tagScreenName(eventName);
             result.success(null);
-        } else if ("setAutomaticScreenNameTagging".equals(call.method)) {
+        });
+        dispatcher.register("setAutomaticScreenNameTagging", MAIN).arg("key", Boolean.class).to((call, result) -> {
             boolean enable = call.argument("key");
             UXCam.setAutomaticScreenNameTagging(enable);
             result.success(null);
-        } else if ("setUserIdentity".equals(call.method)) {
+        });
+        dispatcher.register("addScreenNameToIgnore", MAIN).arg("key", String.class).to((call, result) -> {
+            String screenName = call.argument("key");
+            UXCam.addScreenNameToIgnore(screenName);
+            result.success(null);
+        });
+        dispatcher.register("removeScreenNameToIgnore", MAIN).arg("key", String.class).to((call, result) -> {
+            String screenName = call.argument("key");
+            UXCam.removeScreenNameToIgnore(screenName);
+            result.success(null);
+        });
+        dispatcher.register("removeAllScreenNamesToIgnore", MAIN).to((call, result) -> {
+            UXCam.removeAllScreenNamesToIgnore();
+            result.success(null);
+        });
+        dispatcher.register("setUserIdentity", MAIN).arg("key", String.class).to((call, result) -> {
             String userIdentity = call.argument("key");
-            UXCam.setUserIdentity(userIdentity);
+            if (propertyWriteCache.setUserIdentity(userIdentity)) {
+                schedulePropertyFlush();
+            }
             result.success(null);
-        } else if ("setUserProperty".equals(call.method)) {
+        });
+        dispatcher.register("setUserProperty", BACKGROUND)
+                .arg("key", String.class).arg("value", String.class).to((call, result) -> {
             String key = call.argument("key");
             String value = call.argument("value");
-            UXCam.setUserProperty(key, value);
+            if (propertyWriteCache.setUserProperty(key, value)) {
+                schedulePropertyFlush();
+            }
             result.success(null);
-        } else if ("setSessionProperty".equals(call.method)) {
+        });
+        dispatcher.register("setSessionProperty", BACKGROUND)
+                .arg("key", String.class).arg("value", String.class).to((call, result) -> {
             String key = call.argument("key");
             String value = call.argument("value");
-            UXCam.setSessionProperty(key, value);
+            if (propertyWriteCache.setSessionProperty(key, value)) {
+                schedulePropertyFlush();
+            }
             result.success(null);
-        } else if ("logEvent".equals(call.method)) {
+        });
+        dispatcher.register("logEvent", BACKGROUND).arg("key", String.class).to((call, result) -> {
             String eventName = call.argument("key");
             if (eventName == null || eventName.length() == 0) {
                 throw new IllegalArgumentException("missing event Name");
             }
             UXCam.logEvent(eventName);
             result.success(null);
-        } else if ("logEventWithProperties".equals(call.method)) {
+        });
+        dispatcher.register("logEventWithProperties", BACKGROUND)
+                .arg("eventName", String.class).arg("properties", Map.class).to((call, result) -> {
             String eventName = call.argument("eventName");
             final Map<String, Object> map = call.argument("properties");
             if (eventName == null || eventName.length() == 0) {
@@ -233,76 +540,13 @@ public class FlutterUxcamPlugin implements MethodCallHandler, FlutterPlugin, Act
                 UXCam.logEvent(eventName, map);
             }
             result.success(null);
-        } else if ("isRecording".equals(call.method)) {
-            result.success(UXCam.isRecording());
-        } else if ("pauseScreenRecording".equals(call.method)) {
-            UXCam.pauseScreenRecording();
-            result.success(null);
-        } else if ("resumeScreenRecording".equals(call.method)) {
-            UXCam.resumeScreenRecording();
-            result.success(null);
-        } else if ("optInOverall".equals(call.method)) {
-            UXCam.optInOverall();
-            result.success(null);
-        } else if ("optOutOverall".equals(call.method)) {
-            UXCam.optOutOverall();
-            result.success(null);
-        } else if ("optInOverallStatus".equals(call.method)) {
-            result.success(UXCam.optInOverallStatus());
-        } else if ("optIntoVideoRecording".equals(call.method)) {
-            UXCam.optIntoVideoRecording();
-            result.success(null);
-        } else if ("optOutOfVideoRecording".equals(call.method)) {
-            UXCam.optOutOfVideoRecording();
-            result.success(null);
-        } else if ("optInVideoRecordingStatus".equals(call.method)) {
-            result.success(UXCam.optInVideoRecordingStatus());
-        } else if ("cancelCurrentSession".equals(call.method)) {
-            UXCam.cancelCurrentSession();
-            result.success(null);
-        } else if ("allowShortBreakForAnotherApp".equals(call.method)) {
-            boolean enable = call.argument("key");
-            UXCam.allowShortBreakForAnotherApp(enable);
-            result.success(null);
-        } else if ("allowShortBreakForAnotherAppWithDuration".equals(call.method)) {
-            int duration = call.argument("duration");
-            UXCam.allowShortBreakForAnotherApp(duration);
-            result.success(null);
-        } else if ("resumeShortBreakForAnotherApp".equals(call.method)) {
-            UXCam.resumeShortBreakForAnotherApp();
-            result.success(null);
-        } else if ("deletePendingUploads".equals(call.method)) {
-            UXCam.deletePendingUploads();
-            result.success(null);
-        } else if ("pendingUploads".equals(call.method)) {
-            result.success(UXCam.pendingUploads());
-        } else if ("uploadPendingSession".equals(call.method)) {
-            result.success(null);
-        } else if ("stopApplicationAndUploadData".equals(call.method)) {
-            UXCam.stopSessionAndUploadData();
-            result.success(null);
-        } else if ("urlForCurrentUser".equals(call.method)) {
-            String url = UXCam.urlForCurrentUser();
-            result.success(url);
-        } else if ("urlForCurrentSession".equals(call.method)) {
-            String url = UXCam.urlForCurrentSession();
-            result.success(url);
-        } else if ("addScreenNameToIgnore".equals(call.method)) {
-            String screenName = call.argument("key");
-            UXCam.addScreenNameToIgnore(screenName);
-            result.success(null);
-        } else if ("removeScreenNameToIgnore".equals(call.method)) {
-            String screenName = call.argument("key");
-            UXCam.removeScreenNameToIgnore(screenName);
-            result.success(null);
-        } else if ("removeAllScreenNamesToIgnore".equals(call.method)) {
-            UXCam.removeAllScreenNamesToIgnore();
-            result.success(null);
-        } else if ("setPushNotificationToken".equals(call.method)) {
-            String token = call.argument("key");
-            UXCam.setPushNotificationToken(token);
-            result.success(null);
-        } else if ("reportBugEvent".equals(call.method)) {
+        });
+        dispatcher.register("logEventsBatch", BACKGROUND).arg("events", List.class).to((call, result) -> {
+            List<Map<String, Object>> events = call.argument("events");
+            result.success(logEventsBatch(events));
+        });
+        dispatcher.register("reportBugEvent", BACKGROUND)
+                .arg("eventName", String.class).arg("properties", Map.class).to((call, result) -> {
             String eventName = call.argument("eventName");
             final Map<String, Object> map = call.argument("properties");
             if (eventName == null || eventName.length() == 0) {
@@ -314,214 +558,402 @@ public class FlutterUxcamPlugin implements MethodCallHandler, FlutterPlugin, Act
                 UXCam.reportBugEvent(eventName, map);
             }
             result.success(null);
-        } else if ("reportExceptionEvent".equals(call.method)) {
+        });
+        dispatcher.register("reportExceptionEvent", BACKGROUND)
+                .arg("exception", String.class).arg("stackTraceElements", List.class).arg("properties", Map.class)
+                .to((call, result) -> {
             final String dartExceptionMessage = Objects.requireNonNull(call.argument("exception"));
             final List<Map<String, String>> errorElements = Objects.requireNonNull(call.argument("stackTraceElements"));
 
             final Map<String, Object> map = call.argument("properties");
 
-            if (map == null || map.size() == 0) {
-                UXCam.reportExceptionEvent(parseToException(dartExceptionMessage, errorElements));
-            } else {
-                UXCam.reportExceptionEvent(parseToException(dartExceptionMessage, errorElements), map);
-            }
+            exceptionReporter.report(dartExceptionMessage, errorElements, map);
             result.success(null);
-        } else if ("startWithConfiguration".equals(call.method)) {
-            Map<String, Object> configMap = call.argument("config");
-            startWithConfig(configMap, result);
-            UXCam.pluginType("flutter", TYPE_VERSION);
-        } else if ("applyOcclusion".equals(call.method)) {
-            Map<String, Object> occlusionMap = call.argument("occlusion");
-            UXCamOcclusion occlusion = getOcclusion(occlusionMap);
-            UXCam.applyOcclusion(occlusion);
-            result.success(true);
-        } else if ("removeOcclusion".equals(call.method)) {
-            Map<String, Object> occlusionMap = call.argument("occlusion");
-            UXCamOcclusion occlusion = getOcclusion(occlusionMap);
-            UXCam.removeOcclusion(occlusion);
-            result.success(true);
-        } else if ("appendGestureContent".equals(call.method)) {
+        });
+        dispatcher.register("configureExceptionReporting", BACKGROUND)
+                .arg("windowMs", Integer.class).arg("burst", Integer.class).arg("reportsPerSecond", Double.class)
+                .to((call, result) -> {
+            int windowMs = call.argument("windowMs");
+            int burst = call.argument("burst");
+            double reportsPerSecond = call.argument("reportsPerSecond");
+            exceptionReporter.configure(windowMs, burst, reportsPerSecond);
+            result.success(null);
+        });
+        dispatcher.register("getExceptionReportingStats", BACKGROUND).to((call, result) ->
+                result.success(exceptionReporter.stats()));
+        dispatcher.register("appendGestureContent", MAIN)
+                .arg("x", Double.class).arg("y", Double.class).to((call, result) -> {
             double x = call.argument("x");
             double y = call.argument("y");
             String gestureContent = call.argument("data").toString();
-            UXCam.appendGestureContent((float)x, (float)y, gestureContent);
+            appendGesture((float)x, (float)y, gestureContent);
             result.success(true);
-        }
-        else {
-            result.notImplemented();
-        }
+        });
+        dispatcher.register("configureGesturePrivacy", MAIN)
+                .arg("enabled", Boolean.class).arg("redact", Boolean.class).to((call, result) -> {
+            boolean enabled = call.argument("enabled");
+            boolean redact = call.argument("redact");
+            hideOccludedGestures = enabled;
+            redactOccludedGestures = redact;
+            result.success(null);
+        });
     }
 
-    private void attachOcclusionListenerIfNeeded() {
-        if (occlusionListenerAttached) return;
-        if (binaryMessenger == null) return;
-
-        occlusionRequestChannel = new MethodChannel(binaryMessenger, "uxcam_occlusion_request");
-        delegate.setListener(new OcclusionRectRequestListener() {
-            @Override
-            public void requestOcclusionRects(OcclusionReadyCallback callback) {
-                mainHandler.post(() -> {
-                    occlusionRequestChannel.invokeMethod("requestOcclusionRects", null, new Result() {
-                        @Override
-                        public void success(Object result) {
-                            List<Rect> rects = parseRectsFromFlutter(result);
-                            callback.onRectsReady(rects);
-                        }
+    private void registerPrivacyMethods(MethodDispatcher<MethodCall, Result> dispatcher) {
+        dispatcher.register("occludeSensitiveScreen", MAIN).arg("key", Boolean.class).to((call, result) -> {
+            boolean occludeSensitiveScreen = call.argument("key");
+            UXCam.occludeSensitiveScreen(occludeSensitiveScreen);
+            result.success(null);
+        });
+        dispatcher.register("occludeSensitiveScreenWithoutGesture", MAIN)
+                .arg("key", Boolean.class).arg("withoutGesture", Boolean.class).to((call, result) -> {
+            boolean occludeSensitiveScreen = call.argument("key");
+            boolean withoutGesture = call.argument("withoutGesture");
+            UXCam.occludeSensitiveScreen(occludeSensitiveScreen, withoutGesture);
+            result.success(null);
+        });
+        dispatcher.register("occludeRectWithCoordinates", MAIN)
+                .arg("x0", Integer.class).arg("y0", Integer.class).arg("x1", Integer.class).arg("y1", Integer.class)
+                .to((call, result) -> {
+            JSONArray data = new JSONArray();
+            data.put(call.argument("x0"));
+            data.put(call.argument("y0"));
+            data.put(call.argument("x1"));
+            data.put(call.argument("y1"));
+            JSONArray coordinates = new JSONArray();
+            coordinates.put(data);
+            UXCam.flutterOccludeRectsOnNextFrame(coordinates);
+            result.success(null);
+        });
+        MethodDispatcher.Handler<MethodCall, Result> occludeAllTextFields = (call, result) -> {
+            boolean occludeAllTextField = call.argument("key");
+            UXCam.occludeAllTextFields(occludeAllTextField);
+            result.success(null);
+        };
+        dispatcher.register("occludeAllTextView", MAIN).arg("key", Boolean.class).to(occludeAllTextFields);
+        dispatcher.register("occludeAllTextFields", MAIN).arg("key", Boolean.class).to(occludeAllTextFields);
+        dispatcher.register("applyOcclusion", MAIN).arg("occlusion", Map.class).to((call, result) -> {
+            Map<String, Object> occlusionMap = call.argument("occlusion");
+            occlusionModelCache.apply(occlusionMap);
+            result.success(true);
+        });
+        dispatcher.register("removeOcclusion", MAIN).arg("occlusion", Map.class).to((call, result) -> {
+            Map<String, Object> occlusionMap = call.argument("occlusion");
+            occlusionModelCache.remove(occlusionMap);
+            result.success(true);
+        });
+        dispatcher.register("optInOverall", MAIN).to((call, result) -> {
+            UXCam.optInOverall();
+            result.success(null);
+        });
+        dispatcher.register("optOutOverall", MAIN).to((call, result) -> {
+            UXCam.optOutOverall();
+            result.success(null);
+        });
+        dispatcher.register("optInOverallStatus", MAIN).to((call, result) ->
+                result.success(UXCam.optInOverallStatus()));
+        dispatcher.register("optIntoVideoRecording", MAIN).to((call, result) -> {
+            UXCam.optIntoVideoRecording();
+            result.success(null);
+        });
+        dispatcher.register("optOutOfVideoRecording", MAIN).to((call, result) -> {
+            UXCam.optOutOfVideoRecording();
+            result.success(null);
+        });
+        dispatcher.register("optInVideoRecordingStatus", MAIN).to((call, result) ->
+                result.success(UXCam.optInVideoRecordingStatus()));
+    }
 
-                        @Override
-                        public void error(String errorCode, String errorMessage, Object errorDetails) {
-                            callback.onRectsReady(Collections.emptyList());
-                        }
+    private void registerOcclusionMethods(MethodDispatcher<MethodCall, Result> dispatcher) {
+        dispatcher.register("setOcclusionRequestDeadline", MAIN).arg("deadlineMs", Integer.class).to((call, result) -> {
+            int deadlineMs = call.argument("deadlineMs");
+            OCCLUSION_ENGINES.guard().setDeadlineMs(deadlineMs);
+            result.success(null);
+        });
+        dispatcher.register("getOcclusionRequestStats", MAIN).to((call, result) -> {
+            Map<String, Object> stats = OCCLUSION_ENGINES.guard().stats();
+            occlusionRequestCoalescer.appendStats(stats);
+            OCCLUSION_ENGINES.appendStats(stats);
+            result.success(stats);
+        });
+        dispatcher.register("configureOcclusionPrediction", MAIN)
+                .arg("enabled", Boolean.class).arg("maxExtrapolationMs", Integer.class).to((call, result) -> {
+            boolean enabled = call.argument("enabled");
+            int maxExtrapolationMs = call.argument("maxExtrapolationMs");
+            occlusionRectStore.configurePrediction(enabled, maxExtrapolationMs);
+            result.success(null);
+        });
+        dispatcher.register("configureOcclusionMerging", MAIN)
+                .arg("enabled", Boolean.class).arg("slackPx", Integer.class).to((call, result) -> {
+            boolean enabled = call.argument("enabled");
+            int slackPx = call.argument("slackPx");
+            OCCLUSION_ENGINES.merger().configure(enabled, slackPx);
+            result.success(null);
+        });
+        dispatcher.register("getOcclusionMergeStats", MAIN).to((call, result) ->
+                result.success(OCCLUSION_ENGINES.merger().stats()));
+        dispatcher.register("getSharedOcclusionStats", MAIN).to((call, result) -> {
+            SharedOcclusionBuffer shared = sharedOcclusionBuffer;
+            result.success(shared == null ? new HashMap<String, Object>() : shared.stats());
+        });
+    }
 
-                        @Override
-                        public void notImplemented() {
-                            callback.onRectsReady(Collections.emptyList());
-                        }
-                    });
-                });
-            }
+    private void registerDiagnosticMethods(MethodDispatcher<MethodCall, Result> dispatcher) {
+        dispatcher.register("configurePluginMetrics", MAIN)
+                .arg("enabled", Boolean.class).arg("dumpIntervalMs", Integer.class).to((call, result) -> {
+            boolean enabled = call.argument("enabled");
+            int dumpIntervalMs = call.argument("dumpIntervalMs");
+            METRICS.configure(enabled, dumpIntervalMs);
+            result.success(null);
+        });
+        dispatcher.register("getPluginMetrics", MAIN).arg("reset", Boolean.class).to((call, result) -> {
+            Boolean reset = call.argument("reset");
+            Map<String, Object> metrics = METRICS.snapshot();
+            if (reset != null && reset) METRICS.reset();
+            result.success(metrics);
+        });
+        dispatcher.register("getStartupTimings", MAIN).to((call, result) ->
+                result.success(STARTUP.timings()));
+        dispatcher.register("getPropertyCacheStats", MAIN).to((call, result) ->
+                result.success(propertyWriteCache.stats()));
+        dispatcher.register("getGestureStats", MAIN).to((call, result) -> {
+            Map<String, Object> stats = gestureBuffer.stats();
+            stats.put("occluded", occludedGestureCount.get());
+            result.success(stats);
         });
-        occlusionListenerAttached = true;
     }
 
-    private void startWithConfig(Map<String, Object> configMap, Result callback) {
-        try {
-            addListener(callback);
-            String appKey = (String) configMap.get(USER_APP_KEY);
-            Boolean enableIntegrationLogging = (Boolean) configMap.get(ENABLE_INTEGRATION_LOGGING);
-            Boolean enableMultiSessionRecord = (Boolean) configMap.get(ENABLE_MUTLI_SESSION_RECORD);
-            Boolean enableCrashHandling = (Boolean) configMap.get(ENABLE_CRASH_HANDLING);
-            Boolean enableAutomaticScreenNameTagging = (Boolean) configMap.get(ENABLE_AUTOMATIC_SCREEN_NAME_TAGGING);
-            Boolean enableImprovedScreenCapture = (Boolean) configMap.get(ENABLE_IMPROVED_SCREEN_CAPTURE);
-            List<UXCamOcclusion> occlusionList = null;
-            if (configMap.get(OCCLUSION) != null) {
-                List<Map<String, Object>> occlusionObjects = (List<Map<String, Object>>) configMap.get(OCCLUSION);
-                occlusionList = convertToOcclusionList(occlusionObjects);
+    /**
+     * Logs the events in order and returns one {index, error} entry per event that failed.
+     */
+    private List<Map<String, Object>> logEventsBatch(List<Map<String, Object>> events) {
+        List<Map<String, Object>> failures = new ArrayList<>();
+        if (events == null) return failures;
+
+        for (int i = 0; i < events.size(); i++) {
+            try {
+                Map<String, Object> event = events.get(i);
+                String eventName = (String) event.get("eventName");
+                @SuppressWarnings("unchecked")
+                Map<String, Object> properties = (Map<String, Object>) event.get("properties");
+                if (eventName == null || eventName.length() == 0) {
+                    throw new IllegalArgumentException("missing event Name");
+                }
+                if (properties == null || properties.size() == 0) {
+                    UXCam.logEvent(eventName);
+                } else {
+                    UXCam.logEvent(eventName, properties);
+                }
+            } catch (Exception e) {
+                Map<String, Object> failure = new HashMap<>();
+                failure.put("index", i);
+                failure.put("error", String.valueOf(e.getMessage()));
+                failures.add(failure);
             }
+        }
+        return failures;
+    }
 
-
-            UXConfig.Builder uxConfigBuilder = new UXConfig.Builder(appKey);
-            if (enableIntegrationLogging != null)
-                uxConfigBuilder.enableIntegrationLogging(enableIntegrationLogging);
-            if (enableMultiSessionRecord != null)
-                uxConfigBuilder.enableMultiSessionRecord(enableMultiSessionRecord);
-            if (enableCrashHandling != null)
-                uxConfigBuilder.enableCrashHandling(enableCrashHandling);
-            if (enableAutomaticScreenNameTagging != null)
-                uxConfigBuilder.enableAutomaticScreenNameTagging(enableAutomaticScreenNameTagging);
-            if (enableImprovedScreenCapture != null)
-                uxConfigBuilder.enableImprovedScreenCapture(enableImprovedScreenCapture);
-            if (occlusionList != null) uxConfigBuilder.occlusions(occlusionList);
-
-            UXConfig config = uxConfigBuilder.build();
-            UXCam.startWithConfigurationCrossPlatform(activity, config);
-        } catch (Exception e) {
-            e.printStackTrace();
-            callback.success(false);
+    // Identity and properties are written off the main thread, shortly after the first change.
+    private void schedulePropertyFlush() {
+        if (propertyFlushScheduled.compareAndSet(false, true)) {
+            PROPERTY_WRITER.schedule(propertyFlush, PROPERTY_FLUSH_DELAY_MS, TimeUnit.MILLISECONDS);
         }
     }
 
-    private List<UXCamOcclusion> convertToOcclusionList(List<Map<String, Object>> occlusionObjects) {
-        List<UXCamOcclusion> occlusionList = new ArrayList<UXCamOcclusion>();
-        for (Map<String, Object> occlusionMap : occlusionObjects) {
-            UXCamOcclusion occlusion = getOcclusion(occlusionMap);
-            if (occlusion != null) occlusionList.add(getOcclusion(occlusionMap));
+    // Gestures landing on an occluded widget are dropped, or sent with placeholder content.
+    private void appendGesture(float x, float y, String content) {
+        if (hideOccludedGestures) syncSharedOcclusions();
+        if (hideOccludedGestures && occlusionRectStore.isOccluded(x, y)) {
+            occludedGestureCount.incrementAndGet();
+            if (!redactOccludedGestures) return;
+            content = REDACTED_GESTURE_CONTENT;
         }
-        return occlusionList;
+        UXCam.appendGestureContent(x, y, content);
     }
 
-    private UXCamOcclusion getOcclusion(Map<String, Object> occlusionMap) {
-        int typeIndex = (int) occlusionMap.get(TYPE);
-        switch (typeIndex) {
-            case 2:
-                return (UXCamOcclusion) getOverlay(occlusionMap);
-            case 3:
-                return (UXCamOcclusion) getBlur(occlusionMap);
-            default:
-                return null;
+    private void scheduleGestureDrain() {
+        if (gestureDrainScheduled.compareAndSet(false, true)) {
+            mainHandler.post(gestureDrain);
         }
     }
 
-    private UXCamOverlay getOverlay(Map<String, Object> overlayMap) {
-        // get data
-        List<String> screens = (List<String>) overlayMap.get(SCREENS);
-        Boolean excludeMentionedScreens = (Boolean) overlayMap.get(EXCLUDE_MENTIONED_SCREENS);
-        Map<String, Object> configMap = (Map<String, Object>) overlayMap.get(CONFIG);
-        Boolean hideGestures = null;
-        if (configMap != null) {
-            hideGestures = (Boolean) configMap.get(HIDE_GESTURES);
+    private void registerOcclusionSource() {
+        if (occlusionEngineId >= 0) return;
+        if (binaryMessenger == null) return;
+
+        final CrossPlatformDelegate sdkDelegate = delegate;
+        OcclusionDelegate<Rect> occlusionDelegate = sdkDelegate == null ? null : listener ->
+                sdkDelegate.setListener(callback -> listener.requestOcclusionRects(callback::onRectsReady));
+
+        occlusionRequestChannel = new MethodChannel(binaryMessenger, "uxcam_occlusion_request");
+        occlusionEngineId = OCCLUSION_ENGINES.register(new OcclusionEngineRegistry.Source<Rect>() {
+            @Override
+            public boolean needsRoundTrip() {
+                syncSharedOcclusions();
+                return !occlusionRectStore.isPrimed();
+            }
+
+            @Override
+            public void requestRects(OcclusionRequestCoalescer.Waiter<Rect> waiter) {
+                // Dart keeps the native store current, no need to hop to the main thread
+                syncSharedOcclusions();
+                if (occlusionRectStore.isPrimed()) {
+                    waiter.complete(occlusionRectStore.snapshot(SystemClock.uptimeMillis()));
+                } else {
+                    occlusionRequestCoalescer.enqueue(waiter);
+                }
+            }
+        }, occlusionDelegate);
+    }
+
+    /**
+     * Allocates the buffer Dart writes its occlusion rects into, once per engine, and returns its
+     * native address and slot count. Returns true, keeping Dart on the channel, when the address
+     * of a direct buffer cannot be looked up.
+     */
+    private Object shareOcclusionBuffer(int slots) {
+        if (!DirectBuffers.isAvailable()) return true;
+        SharedOcclusionBuffer shared = sharedOcclusionBuffer;
+        if (shared == null) {
+            shared = SharedOcclusionBuffer.allocate(slots);
+        } else {
+            // Dart only asks again when its previous writer is gone
+            shared.reset();
         }
 
-        // set data
-        UXCamOverlay.Builder overlayBuilder = new UXCamOverlay.Builder();
-        if (screens != null && !screens.isEmpty()) overlayBuilder.screens(screens);
-        if (excludeMentionedScreens != null)
-            overlayBuilder.excludeMentionedScreens(excludeMentionedScreens);
-        if (hideGestures != null) overlayBuilder.withoutGesture(hideGestures);
-        return overlayBuilder.build();
+        long address = DirectBuffers.address(shared.buffer());
+        if (address == 0) return true;
+        sharedOcclusionBuffer = shared;
+
+        Map<String, Object> reply = new HashMap<>();
+        reply.put("address", address);
+        reply.put("slots", shared.slots());
+        reply.put("size", shared.buffer().capacity());
+        return reply;
     }
 
-    private UXCamBlur getBlur(Map<String, Object> blurMap) {
-        // get data
-        List<String> screens = (List<String>) blurMap.get(SCREENS);
-        Boolean excludeMentionedScreens = (Boolean) blurMap.get(EXCLUDE_MENTIONED_SCREENS);
-        Map<String, Object> configMap = (Map<String, Object>) blurMap.get(CONFIG);
-        Integer blurRadius = null;
-        Boolean hideGestures = null;
-        if (configMap != null) {
-            blurRadius = (Integer) configMap.get(BLUR_RADIUS);
-            hideGestures = (Boolean) configMap.get(HIDE_GESTURES);
+    private void syncSharedOcclusions() {
+        SharedOcclusionBuffer shared = sharedOcclusionBuffer;
+        if (shared != null) {
+            occlusionRectStore.applyShared(shared, SystemClock.uptimeMillis(), System.currentTimeMillis());
         }
+    }
 
-        // set data
-        UXCamBlur.Builder blurBuilder = new UXCamBlur.Builder();
-        if (screens != null && !screens.isEmpty()) blurBuilder.screens(screens);
-        if (excludeMentionedScreens != null)
-            blurBuilder.excludeMentionedScreens(excludeMentionedScreens);
-        if (blurRadius != null) blurBuilder.blurRadius(blurRadius);
-        if (hideGestures != null) blurBuilder.withoutGesture(hideGestures);
-        return blurBuilder.build();
+    // Dart may still write into the buffer until its isolate is shut down, which the engine does
+    // after detaching its plugins within the same main thread task; posting releases it after that.
+    private void retireSharedOcclusionBuffer() {
+        final SharedOcclusionBuffer shared = sharedOcclusionBuffer;
+        sharedOcclusionBuffer = null;
+        if (shared == null) return;
+        RETIRED_OCCLUSION_BUFFERS.add(shared);
+        mainHandler.post(() -> RETIRED_OCCLUSION_BUFFERS.remove(shared));
     }
 
-    private void addListener(final Result callback) {
-        com.uxcam.UXCam.addVerificationListener(new com.uxcam.OnVerificationListener() {
+    private void dispatchOcclusionRequest(final OcclusionRequestCoalescer.Flight<Rect> flight) {
+        MethodChannel channel = occlusionRequestChannel;
+        if (channel == null) {
+            occlusionRequestCoalescer.finish(flight, null);
+            return;
+        }
+
+        final long startNanos = METRICS.startTimer();
+        channel.invokeMethod("requestOcclusionRects", null, new Result() {
             @Override
-            public void onVerificationSuccess() {
-                callback.success(true);
+            public void success(Object result) {
+                METRICS.recordOcclusionRoundTrip(startNanos);
+                List<Rect> rects = rectParser.parse(result);
+                if (rects == null) METRICS.recordParseFailure();
+                occlusionRequestCoalescer.finish(flight, rects);
             }
 
             @Override
-            public void onVerificationFailed(String errorMessage) {
-                callback.success(false);
+            public void error(String errorCode, String errorMessage, Object errorDetails) {
+                METRICS.recordOcclusionRoundTrip(startNanos);
+                occlusionRequestCoalescer.finish(flight, null);
+            }
+
+            @Override
+            public void notImplemented() {
+                METRICS.recordOcclusionRoundTrip(startNanos);
+                occlusionRequestCoalescer.finish(flight, null);
             }
         });
     }
 
-    private Exception parseToException(String dartExceptionMessage, List<Map<String, String>> errorElements) {
-        final List<StackTraceElement> elements = new ArrayList<>();
-        Exception exception = new FlutterError(dartExceptionMessage);
+    private static synchronized UploadScheduler uploads(Context context) {
+        if (uploads == null) {
+            uploads = new UploadScheduler(AndroidPlatform.INSTANCE,
+                    new AndroidUploadConditions(context, FlutterUxcamPlugin::pokeUploads),
+                    new UploadScheduler.Uploader() {
+                        @Override
+                        public int pendingSessions() {
+                            return UXCam.pendingUploads();
+                        }
 
-        for (Map<String, String> errorElement : errorElements) {
-            final StackTraceElement stackTraceElement = generateStackTraceElement(errorElement);
-            if (stackTraceElement != null) {
-                elements.add(stackTraceElement);
-            }
+                        @Override
+                        public boolean startUpload() {
+                            // the SDK only uploads when a session ends; never end one that is recording
+                            if (UXCam.isRecording()) return false;
+                            new Handler(Looper.getMainLooper()).post(UXCam::stopSessionAndUploadData);
+                            return true;
+                        }
+                    });
         }
-        exception.setStackTrace(elements.toArray(new StackTraceElement[0]));
-        return exception;
+        return uploads;
     }
 
-    private StackTraceElement generateStackTraceElement(Map<String, String> errorElement) {
-        try {
-            String fileName = errorElement.get("file");
-            String lineNumber = errorElement.get("line");
-            String className = errorElement.get("class");
-            String methodName = errorElement.get("method");
+    private static synchronized void pokeUploads() {
+        if (uploads != null) uploads.poke();
+    }
+
+    // Runs on the startup thread: plain casts and builders only.
+    private UXConfig buildConfig(Map<String, Object> configMap) {
+        String appKey = (String) configMap.get(USER_APP_KEY);
+        Boolean enableIntegrationLogging = (Boolean) configMap.get(ENABLE_INTEGRATION_LOGGING);
+        Boolean enableMultiSessionRecord = (Boolean) configMap.get(ENABLE_MUTLI_SESSION_RECORD);
+        Boolean enableCrashHandling = (Boolean) configMap.get(ENABLE_CRASH_HANDLING);
+        Boolean enableAutomaticScreenNameTagging = (Boolean) configMap.get(ENABLE_AUTOMATIC_SCREEN_NAME_TAGGING);
+        Boolean enableImprovedScreenCapture = (Boolean) configMap.get(ENABLE_IMPROVED_SCREEN_CAPTURE);
+        List<UXCamOcclusion> occlusionList = null;
+        if (configMap.get(OCCLUSION) != null) {
+            List<Map<String, Object>> occlusionObjects = (List<Map<String, Object>>) configMap.get(OCCLUSION);
+            occlusionList = occlusionModelCache.activate(occlusionObjects);
+        }
+
+        UXConfig.Builder uxConfigBuilder = new UXConfig.Builder(appKey);
+        if (enableIntegrationLogging != null)
+            uxConfigBuilder.enableIntegrationLogging(enableIntegrationLogging);
+        if (enableMultiSessionRecord != null)
+            uxConfigBuilder.enableMultiSessionRecord(enableMultiSessionRecord);
+        if (enableCrashHandling != null)
+            uxConfigBuilder.enableCrashHandling(enableCrashHandling);
+        if (enableAutomaticScreenNameTagging != null)
+            uxConfigBuilder.enableAutomaticScreenNameTagging(enableAutomaticScreenNameTagging);
+        if (enableImprovedScreenCapture != null)
+            uxConfigBuilder.enableImprovedScreenCapture(enableImprovedScreenCapture);
+        if (occlusionList != null) uxConfigBuilder.occlusions(occlusionList);
+
+        return uxConfigBuilder.build();
+    }
 
-            return new StackTraceElement(className == null ? "" : className, methodName, fileName, Integer.parseInt(Objects.requireNonNull(lineNumber)));
+    // Applies the settings that can change while recording; the occlusion list is applied as a diff.
+    private boolean updateConfig(Map<String, Object> configMap) {
+        try {
+            Boolean enableMultiSessionRecord = (Boolean) configMap.get(ENABLE_MUTLI_SESSION_RECORD);
+            Boolean enableAutomaticScreenNameTagging = (Boolean) configMap.get(ENABLE_AUTOMATIC_SCREEN_NAME_TAGGING);
+            if (enableMultiSessionRecord != null)
+                UXCam.setMultiSessionRecord(enableMultiSessionRecord);
+            if (enableAutomaticScreenNameTagging != null)
+                UXCam.setAutomaticScreenNameTagging(enableAutomaticScreenNameTagging);
+            if (configMap.get(OCCLUSION) != null) {
+                List<Map<String, Object>> occlusionObjects = (List<Map<String, Object>>) configMap.get(OCCLUSION);
+                occlusionModelCache.update(occlusionObjects);
+            }
+            return true;
         } catch (Exception e) {
-            Log.e(TAG, "Unable to generate stack trace element from Dart error.");
-            return null;
+            e.printStackTrace();
+            return false;
         }
     }
-}
\ No newline at end of file
+}
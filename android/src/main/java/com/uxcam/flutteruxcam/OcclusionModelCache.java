@@ -0,0 +1,211 @@
+package com.uxcam.flutteruxcam;
+
+import com.uxcam.UXCam;
+import com.uxcam.screenshot.model.UXCamBlur;
+import com.uxcam.screenshot.model.UXCamOcclusion;
+import com.uxcam.screenshot.model.UXCamOverlay;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Built occlusion models keyed by their content (type, screens, radius and gesture flag).
+ *
+ * The SDK matches occlusions by instance, so the same settings always resolve to the same
+ * object: a remove finds exactly what was applied. The active set mirrors what the SDK
+ * currently holds, which lets a new configuration be applied as a diff. A start configuration
+ * replaces the active set off the main thread; the occlusions it drops stay applied in the SDK
+ * until {@link #removeStale} takes them out on the main thread.
+ */
+final class OcclusionModelCache {
+    private static final int TYPE_OVERLAY = 2;
+    private static final int TYPE_BLUR = 3;
+
+    private static final int MAX_INACTIVE = 32;
+
+    private final Map<String, UXCamOcclusion> active = new LinkedHashMap<>();
+    private final Map<String, UXCamOcclusion> inactive =
+            new LinkedHashMap<String, UXCamOcclusion>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, UXCamOcclusion> eldest) {
+                    return size() > MAX_INACTIVE;
+                }
+            };
+    // dropped by activate but still held by the SDK
+    private final Map<String, UXCamOcclusion> stale = new LinkedHashMap<>();
+
+    /**
+     * Resolves the occlusions of a start configuration and marks them active, since the SDK
+     * receives them through the config rather than {@code applyOcclusion}. Previously active
+     * occlusions missing from the config are kept for {@link #removeStale}.
+     */
+    synchronized List<UXCamOcclusion> activate(List<Map<String, Object>> occlusionMaps) {
+        Map<String, UXCamOcclusion> previous = new LinkedHashMap<>(active);
+        active.clear();
+        for (Map<String, Object> occlusionMap : occlusionMaps) {
+            String key = key(occlusionMap);
+            if (key == null || active.containsKey(key)) continue;
+            UXCamOcclusion occlusion = previous.remove(key);
+            active.put(key, occlusion != null ? occlusion : obtain(key, occlusionMap));
+        }
+        stale.putAll(previous);
+        return new ArrayList<>(active.values());
+    }
+
+    /**
+     * Removes the occlusions the last {@link #activate} dropped from the SDK; call it on the main
+     * thread before starting with that configuration.
+     */
+    synchronized void removeStale() {
+        for (Map.Entry<String, UXCamOcclusion> entry : stale.entrySet()) {
+            inactive.put(entry.getKey(), entry.getValue());
+            UXCam.removeOcclusion(entry.getValue());
+        }
+        stale.clear();
+    }
+
+    synchronized void apply(Map<String, Object> occlusionMap) {
+        String key = key(occlusionMap);
+        if (key == null || active.containsKey(key)) return;
+
+        UXCamOcclusion occlusion = obtain(key, occlusionMap);
+        active.put(key, occlusion);
+        UXCam.applyOcclusion(occlusion);
+    }
+
+    synchronized void remove(Map<String, Object> occlusionMap) {
+        String key = key(occlusionMap);
+        if (key == null) return;
+
+        UXCamOcclusion occlusion = active.remove(key);
+        if (occlusion == null) {
+            occlusion = obtain(key, occlusionMap);
+        } else {
+            inactive.put(key, occlusion);
+        }
+        UXCam.removeOcclusion(occlusion);
+    }
+
+    /**
+     * Removes active occlusions missing from {@code occlusionMaps} and applies the new ones,
+     * leaving unchanged entries alone.
+     */
+    synchronized void update(List<Map<String, Object>> occlusionMaps) {
+        Map<String, Map<String, Object>> wanted = new LinkedHashMap<>();
+        for (Map<String, Object> occlusionMap : occlusionMaps) {
+            String key = key(occlusionMap);
+            if (key != null) wanted.put(key, occlusionMap);
+        }
+
+        for (String key : new ArrayList<>(active.keySet())) {
+            if (wanted.containsKey(key)) continue;
+            UXCamOcclusion occlusion = active.remove(key);
+            inactive.put(key, occlusion);
+            UXCam.removeOcclusion(occlusion);
+        }
+        for (Map.Entry<String, Map<String, Object>> entry : wanted.entrySet()) {
+            if (active.containsKey(entry.getKey())) continue;
+            UXCamOcclusion occlusion = obtain(entry.getKey(), entry.getValue());
+            active.put(entry.getKey(), occlusion);
+            UXCam.applyOcclusion(occlusion);
+        }
+    }
+
+    private UXCamOcclusion obtain(String key, Map<String, Object> occlusionMap) {
+        UXCamOcclusion occlusion = active.get(key);
+        if (occlusion != null) return occlusion;
+        occlusion = stale.remove(key);
+        if (occlusion != null) return occlusion;
+        occlusion = inactive.remove(key);
+        if (occlusion != null) return occlusion;
+        return build(occlusionMap);
+    }
+
+    // null for types Android has no model for
+    private static String key(Map<String, Object> occlusionMap) {
+        if (occlusionMap == null) return null;
+        Object type = occlusionMap.get(FlutterUxcamPlugin.TYPE);
+        if (!(type instanceof Integer)) return null;
+        int typeIndex = (Integer) type;
+        if (typeIndex != TYPE_OVERLAY && typeIndex != TYPE_BLUR) return null;
+
+        Map<String, Object> configMap = (Map<String, Object>) occlusionMap.get(FlutterUxcamPlugin.CONFIG);
+        Object radius = null;
+        Object hideGestures = null;
+        if (configMap != null) {
+            if (typeIndex == TYPE_BLUR) radius = configMap.get(FlutterUxcamPlugin.BLUR_RADIUS);
+            hideGestures = configMap.get(FlutterUxcamPlugin.HIDE_GESTURES);
+        }
+
+        // the SDK treats screens as a set
+        List<String> screens = (List<String>) occlusionMap.get(FlutterUxcamPlugin.SCREENS);
+        List<String> sortedScreens = screens == null ? Collections.<String>emptyList() : new ArrayList<>(screens);
+        Collections.sort(sortedScreens);
+
+        StringBuilder builder = new StringBuilder()
+                .append(typeIndex).append('|')
+                .append(occlusionMap.get(FlutterUxcamPlugin.EXCLUDE_MENTIONED_SCREENS)).append('|')
+                .append(radius).append('|')
+                .append(hideGestures);
+        for (String screen : sortedScreens) {
+            builder.append('|').append(screen.length()).append(':').append(screen);
+        }
+        return builder.toString();
+    }
+
+    private static UXCamOcclusion build(Map<String, Object> occlusionMap) {
+        int typeIndex = (int) occlusionMap.get(FlutterUxcamPlugin.TYPE);
+        switch (typeIndex) {
+            case TYPE_OVERLAY:
+                return buildOverlay(occlusionMap);
+            case TYPE_BLUR:
+                return buildBlur(occlusionMap);
+            default:
+                return null;
+        }
+    }
+
+    private static UXCamOverlay buildOverlay(Map<String, Object> overlayMap) {
+        // get data
+        List<String> screens = (List<String>) overlayMap.get(FlutterUxcamPlugin.SCREENS);
+        Boolean excludeMentionedScreens = (Boolean) overlayMap.get(FlutterUxcamPlugin.EXCLUDE_MENTIONED_SCREENS);
+        Map<String, Object> configMap = (Map<String, Object>) overlayMap.get(FlutterUxcamPlugin.CONFIG);
+        Boolean hideGestures = null;
+        if (configMap != null) {
+            hideGestures = (Boolean) configMap.get(FlutterUxcamPlugin.HIDE_GESTURES);
+        }
+
+        // set data
+        UXCamOverlay.Builder overlayBuilder = new UXCamOverlay.Builder();
+        if (screens != null && !screens.isEmpty()) overlayBuilder.screens(screens);
+        if (excludeMentionedScreens != null)
+            overlayBuilder.excludeMentionedScreens(excludeMentionedScreens);
+        if (hideGestures != null) overlayBuilder.withoutGesture(hideGestures);
+        return overlayBuilder.build();
+    }
+
+    private static UXCamBlur buildBlur(Map<String, Object> blurMap) {
+        // get data
+        List<String> screens = (List<String>) blurMap.get(FlutterUxcamPlugin.SCREENS);
+        Boolean excludeMentionedScreens = (Boolean) blurMap.get(FlutterUxcamPlugin.EXCLUDE_MENTIONED_SCREENS);
+        Map<String, Object> configMap = (Map<String, Object>) blurMap.get(FlutterUxcamPlugin.CONFIG);
+        Integer blurRadius = null;
+        Boolean hideGestures = null;
+        if (configMap != null) {
+            blurRadius = (Integer) configMap.get(FlutterUxcamPlugin.BLUR_RADIUS);
+            hideGestures = (Boolean) configMap.get(FlutterUxcamPlugin.HIDE_GESTURES);
+        }
+
+        // set data
+        UXCamBlur.Builder blurBuilder = new UXCamBlur.Builder();
+        if (screens != null && !screens.isEmpty()) blurBuilder.screens(screens);
+        if (excludeMentionedScreens != null)
+            blurBuilder.excludeMentionedScreens(excludeMentionedScreens);
+        if (blurRadius != null) blurBuilder.blurRadius(blurRadius);
+        if (hideGestures != null) blurBuilder.withoutGesture(hideGestures);
+        return blurBuilder.build();
+    }
+}
@@ -0,0 +1,165 @@
+package com.uxcam.flutteruxcam;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.uxcam.OnVerificationListener;
+import com.uxcam.UXCam;
+import com.uxcam.datamodel.UXConfig;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import io.flutter.plugin.common.MethodChannel.Result;
+
+/**
+ * Starts the SDK with as little main thread work as possible.
+ *
+ * The config is decoded and its occlusions built on a background thread; only the SDK start call
+ * itself runs on the main thread. One verification listener is registered for the process and
+ * answers every start call still waiting, each exactly once. Timings of the last start are kept
+ * for {@link #timings}.
+ */
+final class StartupPipeline {
+    interface Decoder {
+        UXConfig decode() throws Exception;
+    }
+
+    interface Starter {
+        void start(UXConfig config);
+    }
+
+    private static final ExecutorService DECODER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "uxcam-startup");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<Result> pending = new ArrayList<>();
+    private boolean listenerAdded = false;
+
+    // uptime of each step of the last start, -1 until reached
+    private long requestedAtMs = -1;
+    private long decodedAtMs = -1;
+    private long sdkStartBeganAtMs = -1;
+    private long sdkStartedAtMs = -1;
+    private long verifiedAtMs = -1;
+    private Boolean verified;
+
+    /**
+     * Decodes off the main thread, then runs {@code starter} on the main thread. {@code result}
+     * is answered by verification, or with false when decoding fails.
+     */
+    void startDecoded(final Result result, final Decoder decoder, final Starter starter) {
+        begin(result);
+        DECODER.execute(() -> {
+            final UXConfig config;
+            try {
+                config = decoder.decode();
+            } catch (Exception e) {
+                Log.e(FlutterUxcamPlugin.TAG, "Unable to decode UXCam config", e);
+                mainHandler.post(() -> {
+                    if (remove(result)) result.success(false);
+                });
+                return;
+            }
+            synchronized (this) {
+                decodedAtMs = SystemClock.uptimeMillis();
+            }
+            mainHandler.post(() -> runStart(result, () -> starter.start(config)));
+        });
+    }
+
+    /**
+     * Runs {@code start} right away, for starts with nothing to decode.
+     */
+    void startNow(Result result, Runnable start) {
+        begin(result);
+        synchronized (this) {
+            decodedAtMs = requestedAtMs;
+        }
+        runStart(result, start);
+    }
+
+    synchronized Map<String, Object> timings() {
+        Map<String, Object> timings = new HashMap<>();
+        timings.put("decodeMs", span(requestedAtMs, decodedAtMs));
+        timings.put("sdkStartMs", span(sdkStartBeganAtMs, sdkStartedAtMs));
+        timings.put("verificationMs", span(sdkStartBeganAtMs, verifiedAtMs));
+        timings.put("totalMs", span(requestedAtMs, verifiedAtMs));
+        timings.put("verified", verified);
+        timings.put("pending", pending.size());
+        return timings;
+    }
+
+    private synchronized void begin(Result result) {
+        if (!listenerAdded) {
+            UXCam.addVerificationListener(new OnVerificationListener() {
+                @Override
+                public void onVerificationSuccess() {
+                    onVerified(true);
+                }
+
+                @Override
+                public void onVerificationFailed(String errorMessage) {
+                    onVerified(false);
+                }
+            });
+            listenerAdded = true;
+        }
+        pending.add(result);
+        requestedAtMs = SystemClock.uptimeMillis();
+        decodedAtMs = -1;
+        sdkStartBeganAtMs = -1;
+        sdkStartedAtMs = -1;
+        verifiedAtMs = -1;
+        verified = null;
+    }
+
+    private void runStart(Result result, Runnable start) {
+        synchronized (this) {
+            sdkStartBeganAtMs = SystemClock.uptimeMillis();
+        }
+        try {
+            start.run();
+        } catch (Exception e) {
+            e.printStackTrace();
+            if (remove(result)) result.success(false);
+            return;
+        }
+        synchronized (this) {
+            sdkStartedAtMs = SystemClock.uptimeMillis();
+        }
+    }
+
+    private void onVerified(boolean success) {
+        final List<Result> waiting;
+        synchronized (this) {
+            verifiedAtMs = SystemClock.uptimeMillis();
+            verified = success;
+            waiting = new ArrayList<>(pending);
+            pending.clear();
+        }
+        if (waiting.isEmpty()) return;
+        mainHandler.post(() -> {
+            for (Result result : waiting) {
+                result.success(success);
+            }
+        });
+    }
+
+    private synchronized boolean remove(Result result) {
+        return pending.remove(result);
+    }
+
+    private static long span(long fromMs, long toMs) {
+        return fromMs < 0 || toMs < 0 ? -1 : toMs - fromMs;
+    }
+}
@@ -7,6 +7,7 @@ export './src/helpers/screen_lifecycle.dart';
 export 'src/models/uxblur.dart';
 export 'src/models/uxoverlay.dart';
 export 'src/models/uxcam_config.dart';
+export 'src/models/capture_tier.dart';
 export 'src/models/ux_ai_text_occlusion.dart';
 export 'src/widgets/occlude_wrapper.dart';
 export 'src/widgets/uxcam_handler.dart';
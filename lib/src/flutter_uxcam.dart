@@ -4,7 +4,9 @@ import 'dart:io';
 import 'package:flutter/foundation.dart';
 import 'package:flutter/services.dart';
 import 'package:flutter/widgets.dart';
+import 'package:flutter_uxcam/src/smart_events/gesture_platform_channel.dart';
 import 'package:flutter_uxcam/src/smart_events/uxcam_smart_events.dart';
+import 'package:flutter_uxcam/src/helpers/event_buffer.dart';
 import 'package:flutter_uxcam/src/helpers/extensions.dart';
 import 'package:flutter_uxcam/src/models/flutter_occlusion.dart';
 import 'package:flutter_uxcam/src/models/track_data.dart';
@@ -16,10 +18,29 @@ import 'package:stack_trace/stack_trace.dart';
 class FlutterUxcam {
   static const MethodChannel _channel = const MethodChannel('flutter_uxcam');
 
+  /// Calls that don't need the UI thread. Android serves this channel from a
+  /// background task queue; other platforms keep using [_channel].
+  static const MethodChannel _backgroundChannel =
+      const MethodChannel('flutter_uxcam/background');
+
+  static MethodChannel get _nonUiChannel =>
+      !kIsWeb && Platform.isAndroid ? _backgroundChannel : _channel;
+
+  static const MethodChannel _captureTierChannel =
+      const MethodChannel('flutter_uxcam/capture_tier');
+
+  static final StreamController<UXCamCaptureTierChange> _captureTierChanges =
+      StreamController<UXCamCaptureTierChange>.broadcast();
+
   static UxCam? uxCam;
 
   static final UXCamSmartEvents _smartEvents = UXCamSmartEvents();
 
+  static UXCamEventBuffer? _eventBuffer;
+
+  static int? _sharedOcclusionSlots;
+  static bool _engineRegistered = false;
+
   /// For getting platformVersion from Native Side.
   static Future<String> get platformVersion async {
     final String? version =
@@ -34,8 +55,7 @@ class FlutterUxcam {
     WidgetsFlutterBinding.ensureInitialized();
     if (!kIsWeb && Platform.isAndroid) {
       // Ensure occlusion channel handler is registered before native polling.
-      final _ = OcclusionRegistry.instance;
-      await _channel.invokeMethod('registerEngine');
+      await _registerEngine();
     }
 
     uxCam = UxCam();
@@ -51,6 +71,67 @@ class FlutterUxcam {
     return status!;
   }
 
+  /// Adds this Flutter engine's occluded widgets to the recording without
+  /// starting UXCam again. Call it from every additional engine of an
+  /// add-to-app host; the engine that calls [startWithConfiguration] is
+  /// registered already. Occlusions of all registered engines are merged.
+  ///
+  /// NOTE: This will only work on Android
+  static Future<void> registerOcclusionEngine() async {
+    if (!kIsWeb && Platform.isAndroid) {
+      WidgetsFlutterBinding.ensureInitialized();
+      await _registerEngine();
+    }
+  }
+
+  /// Lets the occlusion registry write its rects straight into memory shared
+  /// with the native side, instead of sending a message every frame they
+  /// change. [slots] is the most rects one frame can hold; while there are
+  /// more, the registry falls back to messages. Call it before
+  /// [startWithConfiguration] or [registerOcclusionEngine], or at any time
+  /// after.
+  ///
+  /// The buffer needs a small native library, which is only built when the
+  /// app sets `uxcam.sharedOcclusionBuffer=true` in
+  /// `android/gradle.properties` and has the NDK and CMake installed.
+  /// Without it the registry keeps sending messages.
+  ///
+  /// NOTE: This will only work on Android
+  static Future<void> enableSharedOcclusionBuffer({int slots = 256}) async {
+    if (!kIsWeb && Platform.isAndroid) {
+      _sharedOcclusionSlots = slots;
+      if (_engineRegistered) await _registerEngine();
+    }
+  }
+
+  static Future<void> _registerEngine() async {
+    final registry = OcclusionRegistry.instance;
+    final slots = registry.hasSharedBuffer ? null : _sharedOcclusionSlots;
+    final reply = await _channel.invokeMethod('registerEngine',
+        slots == null ? null : {"sharedOcclusionSlots": slots});
+    _engineRegistered = true;
+    if (reply is Map) {
+      registry.attachSharedBuffer(
+          reply["address"] as int, reply["size"] as int, reply["slots"] as int);
+    }
+  }
+
+  /// Returns timings of the last start, in milliseconds: `decodeMs` (config
+  /// decoding off the main thread), `sdkStartMs` (the SDK start call),
+  /// `verificationMs` (SDK start until verification) and `totalMs`. Steps not
+  /// reached yet are -1. Also returns `verified` and the number of `pending`
+  /// start calls.
+  ///
+  /// NOTE: This will only work on Android. This will return an empty map.
+  static Future<Map<String, dynamic>> getStartupTimings() async {
+    if (!kIsWeb && Platform.isAndroid) {
+      final Map<String, dynamic>? timings = await _channel
+          .invokeMapMethod<String, dynamic>('getStartupTimings');
+      return timings ?? {};
+    }
+    return {};
+  }
+
   static Future<void> attachBridge() async {
     if (!kIsWeb && Platform.isIOS) {
       await _channel.invokeMethod('attachBridge');
@@ -66,7 +147,11 @@ class FlutterUxcam {
     return FlutterUxConfig.fromJson(json!);
   }
 
-  /// This call is available only for IOS portion of the SDK so not sure will work on Android.
+  /// Applies [config] to the running session.
+  ///
+  /// On Android only the occlusion list, multi-session recording and
+  /// automatic screen name tagging change; occlusions are diffed against the
+  /// active ones so unchanged entries are left in place.
   static Future<bool> updateConfiguration(FlutterUxConfig config) async {
     final bool? status = await _channel
         .invokeMethod<bool>('updateConfiguration', {"config": config.toJson()});
@@ -83,6 +168,7 @@ class FlutterUxcam {
 
   /// This method is used for starting new session
   static Future<void> startNewSession() async {
+    await flushEvents();
     await _channel.invokeMethod('startNewSession');
   }
 
@@ -94,6 +180,7 @@ class FlutterUxcam {
   /// This method is used for stopping the current session
   /// and uploading the data to server
   static Future<void> stopSessionAndUploadData() async {
+    await flushEvents();
     await _channel.invokeMethod('stopSessionAndUploadData');
   }
 
@@ -145,6 +232,7 @@ class FlutterUxcam {
   ///
   /// * See: [Flutter Tagging Approach](https://developer.uxcam.com/docs/flutter-tagging-approach)
   static Future<void> tagScreenName(String screenName) async {
+    await flushEvents();
     await _channel.invokeMethod('tagScreenName', {"key": screenName});
   }
 
@@ -155,6 +243,7 @@ class FlutterUxcam {
   ///
   /// By default if this is not set. A Random name will be assigned.
   static Future<void> setUserIdentity(String? userIdentity) async {
+    await flushEvents();
     await _channel.invokeMethod('setUserIdentity', {"key": userIdentity});
   }
 
@@ -166,7 +255,7 @@ class FlutterUxcam {
   ///
   /// eg: setUserProperty('username', 'john')
   static Future<void> setUserProperty(String key, String value) async {
-    await _channel
+    await _nonUiChannel
         .invokeMethod('setUserProperty', {"key": key, "value": value});
   }
 
@@ -178,17 +267,35 @@ class FlutterUxcam {
   ///
   /// eg: setUserProperty('username', 'john')
   static Future<void> setSessionProperty(String key, String value) async {
-    await _channel
+    await _nonUiChannel
         .invokeMethod('setSessionProperty', {"key": key, "value": value});
   }
 
+  /// Returns counters of the native write cache behind [tagScreenName],
+  /// [setUserIdentity], [setUserProperty] and [setSessionProperty]: `hits`
+  /// (calls dropped because nothing changed), `misses` and `flushes`.
+  ///
+  /// NOTE: This will only work on Android. This will return an empty map.
+  static Future<Map<String, int>> getPropertyCacheStats() async {
+    if (!kIsWeb && Platform.isAndroid) {
+      final Map<String, int>? stats =
+          await _channel.invokeMapMethod<String, int>('getPropertyCacheStats');
+      return stats ?? {};
+    }
+    return {};
+  }
+
   /// This method is used for sending event to be logged.
   ///
   /// [logEvent] is String
   ///
   /// Here logEvent is sending the value as trigger
   static Future<void> logEvent(String logEvent) async {
-    await _channel.invokeMethod('logEvent', {"key": logEvent});
+    if (_eventBuffer != null) {
+      _eventBuffer!.add(logEvent);
+      return;
+    }
+    await _nonUiChannel.invokeMethod('logEvent', {"key": logEvent});
   }
 
   /// This method is used for sending event to be logged.
@@ -200,10 +307,82 @@ class FlutterUxcam {
   /// Here logEvent is sending the value with additional data.
   static Future<void> logEventWithProperties(
       String eventName, Map<String, dynamic> properties) async {
-    await _channel.invokeMethod('logEventWithProperties',
+    if (_eventBuffer != null) {
+      _eventBuffer!.add(eventName, properties);
+      return;
+    }
+    await _nonUiChannel.invokeMethod('logEventWithProperties',
         {"eventName": eventName, "properties": properties});
   }
 
+  /// This method is used for sending several events in one call.
+  ///
+  /// [events] is a list of `{"eventName": String, "properties": Map?}` maps,
+  /// logged in order.
+  ///
+  /// Returns the events that could not be logged, keyed by their index in
+  /// [events], with the reason as value.
+  static Future<Map<int, String>> logEventsBatch(
+      List<Map<String, dynamic>> events) async {
+    if (events.isEmpty) return {};
+
+    if (!kIsWeb && Platform.isAndroid) {
+      final List<dynamic>? failures = await _nonUiChannel
+          .invokeListMethod<dynamic>('logEventsBatch', {"events": events});
+      return {
+        for (final failure in failures ?? const [])
+          failure["index"] as int: failure["error"] as String,
+      };
+    }
+
+    final failures = <int, String>{};
+    for (var i = 0; i < events.length; i++) {
+      final eventName = events[i]["eventName"] as String?;
+      final properties = events[i]["properties"] as Map<String, dynamic>?;
+      try {
+        if (eventName == null || eventName.isEmpty) {
+          throw ArgumentError("missing event Name");
+        }
+        await _channel.invokeMethod('logEventWithProperties',
+            {"eventName": eventName, "properties": properties ?? {}});
+      } catch (e) {
+        failures[i] = e.toString();
+      }
+    }
+    return failures;
+  }
+
+  /// Buffers `logEvent` and `logEventWithProperties` calls and sends them with
+  /// [logEventsBatch] once [maxEvents] are queued, [maxDelay] has passed, or
+  /// the app leaves the foreground.
+  ///
+  /// Buffered events are sent before [tagScreenName], [setUserIdentity],
+  /// [startNewSession], [stopSessionAndUploadData], [cancelCurrentSession] and
+  /// [stopApplicationAndUploadData] run, so they stay on the screen and in the
+  /// session they were logged in. Other calls may overtake them.
+  static void enableEventBuffering(
+      {int maxEvents = 20,
+      Duration maxDelay = const Duration(milliseconds: 500)}) {
+    _eventBuffer?.dispose();
+    _eventBuffer = UXCamEventBuffer(
+      send: logEventsBatch,
+      maxEvents: maxEvents,
+      maxDelay: maxDelay,
+    );
+  }
+
+  /// Sends any buffered events and stops buffering.
+  static Future<void> disableEventBuffering() async {
+    final buffer = _eventBuffer;
+    _eventBuffer = null;
+    await buffer?.dispose();
+  }
+
+  /// Sends any buffered events now and waits until they have been logged.
+  static Future<void> flushEvents() async {
+    await _eventBuffer?.flush();
+  }
+
   /// This method is used for verifying if the recording is currently active
   static Future<bool> isRecording() async {
     final bool? starter = await _channel.invokeMethod<bool>('isRecording');
@@ -294,6 +473,7 @@ class FlutterUxcam {
 
   /// This method is used for cancelling current running session.
   static Future<void> cancelCurrentSession() async {
+    await flushEvents();
     await _channel.invokeMethod('cancelCurrentSession');
   }
 
@@ -358,23 +538,65 @@ class FlutterUxcam {
   /// This method is used for deleting all the pending Session that is
   /// not uploaded.
   static Future<void> deletePendingUploads() async {
-    await _channel.invokeMethod('deletePendingUploads');
+    await _nonUiChannel.invokeMethod('deletePendingUploads');
   }
 
   /// This method is used getting number of upload counts
   static Future<int> pendingUploads() async {
-    final int? count = await _channel.invokeMethod<int>('pendingUploads');
+    final int? count =
+        await _nonUiChannel.invokeMethod<int>('pendingUploads');
     return count!;
   }
 
   /// This method is used for performing manual trigger for uploading sessions that
   /// are not uploaded.
+  ///
+  /// On Android the upload is queued and runs once the conditions set with
+  /// [configureUploadScheduler] hold.
   static Future<void> uploadPendingSession() async {
-    await _channel.invokeMethod('uploadPendingSession');
+    await _nonUiChannel.invokeMethod('uploadPendingSession');
+  }
+
+  /// Sets when queued uploads from [uploadPendingSession] may run: only on
+  /// an unmetered network with [requireUnmetered], only while charging with
+  /// [requireCharging], and only while the app is in the background with
+  /// [requireIdle]. At most [maxBacklog] requests are kept, the oldest are
+  /// dropped beyond that. Failed uploads are retried with backoff.
+  ///
+  /// NOTE: This will only work on Android
+  static Future<void> configureUploadScheduler(
+      {bool requireUnmetered = true,
+      bool requireCharging = false,
+      bool requireIdle = true,
+      int maxBacklog = 16}) async {
+    if (!kIsWeb && Platform.isAndroid) {
+      await _nonUiChannel.invokeMethod('configureUploadScheduler', {
+        "requireUnmetered": requireUnmetered,
+        "requireCharging": requireCharging,
+        "requireIdle": requireIdle,
+        "maxBacklog": maxBacklog,
+      });
+    }
+  }
+
+  /// Returns the upload scheduler state: `queued` requests, `pendingSessions`
+  /// held by the SDK, the counters `requested`, `evicted`, `waits`, `runs`,
+  /// `succeeded`, `failed` and `uploadedSessions`, `consecutiveFailures`,
+  /// `nextAttemptInMs`, `uploading` and a readable `lastOutcome`.
+  ///
+  /// NOTE: This will only work on Android. This will return an empty map.
+  static Future<Map<String, dynamic>> getUploadSchedulerStats() async {
+    if (!kIsWeb && Platform.isAndroid) {
+      final Map<String, dynamic>? stats = await _nonUiChannel
+          .invokeMapMethod<String, dynamic>('getUploadSchedulerStats');
+      return stats ?? {};
+    }
+    return {};
   }
 
   @Deprecated("Please use stopSessionAndUploadData() instead")
   static Future<void> stopApplicationAndUploadData() async {
+    await flushEvents();
     await _channel.invokeMethod('stopApplicationAndUploadData');
   }
 
@@ -416,7 +638,7 @@ class FlutterUxcam {
   /// This method is used for sending any report as Bug as key value pair
   static Future<void> reportBugEvent(String eventName,
       [Map<String, dynamic>? properties]) async {
-    await _channel.invokeMethod(
+    await _nonUiChannel.invokeMethod(
         'reportBugEvent', {"eventName": eventName, "properties": properties});
   }
 
@@ -432,12 +654,125 @@ class FlutterUxcam {
     final List<Map<String, String>> stackTraceElements =
         getStackTraceElements(stackTrace);
 
-    await _channel.invokeMethod('reportExceptionEvent', {
+    await _nonUiChannel.invokeMethod('reportExceptionEvent', {
       "exception": exception.toString(),
       "stackTraceElements": stackTraceElements,
     });
   }
 
+  /// Returns gesture delivery counters: `received`, `delivered`, `dropped`
+  /// (oldest gestures discarded when the native buffer was full), `pending`
+  /// and `occluded` (gestures that landed on an occluded widget).
+  ///
+  /// NOTE: This will only work on Android. This will return an empty map.
+  static Future<Map<String, int>> getGestureStats() async {
+    if (!kIsWeb && Platform.isAndroid) {
+      final Map<String, int>? stats =
+          await _channel.invokeMapMethod<String, int>('getGestureStats');
+      return stats ?? {};
+    }
+    return {};
+  }
+
+  /// Controls gesture content for taps that land on an occluded widget.
+  /// By default their content is not sent. With [redact] the gesture is
+  /// still sent, with placeholder content instead of the widget's.
+  /// Set [enabled] to false to send content for every gesture.
+  ///
+  /// NOTE: This will only work on Android
+  static Future<void> configureGesturePrivacy(
+      {bool enabled = true, bool redact = false}) async {
+    if (!kIsWeb && Platform.isAndroid) {
+      await _channel.invokeMethod('configureGesturePrivacy', {
+        "enabled": enabled,
+        "redact": redact,
+      });
+    }
+  }
+
+  /// Turns on the adaptive capture mode, which lowers the rate of occlusion
+  /// queries to Flutter and releases pooled buffers under memory pressure or
+  /// while frames are being dropped. With [pauseRecordingAtTier] screen recording is
+  /// paused at that tier and resumed once the app has recovered for a few
+  /// seconds. Changes are reported on [captureTierChanges].
+  ///
+  /// NOTE: This will only work on Android
+  static Future<void> configureAdaptiveCapture(
+      {bool enabled = true, UXCamCaptureTier? pauseRecordingAtTier}) async {
+    if (!kIsWeb && Platform.isAndroid) {
+      _captureTierChannel.setMethodCallHandler(_handleCaptureTierCall);
+      await _channel.invokeMethod('configureAdaptiveCapture', {
+        "enabled": enabled,
+        "pauseRecordingAtTier": pauseRecordingAtTier?.index ?? -1,
+      });
+    }
+  }
+
+  /// Tier changes of the adaptive capture mode, see
+  /// [configureAdaptiveCapture].
+  ///
+  /// NOTE: This will only work on Android
+  static Stream<UXCamCaptureTierChange> get captureTierChanges =>
+      _captureTierChanges.stream;
+
+  /// Returns the adaptive capture state: `enabled`, `tier`, `memoryTier`,
+  /// `frameTier`, `recordingPaused`, and the counters `trimEvents`,
+  /// `jankyWindows`, `tierChanges` and `recordingPauses`.
+  ///
+  /// NOTE: This will only work on Android. This will return an empty map.
+  static Future<Map<String, dynamic>> getAdaptiveCaptureStats() async {
+    if (!kIsWeb && Platform.isAndroid) {
+      final Map<String, dynamic>? stats = await _channel
+          .invokeMapMethod<String, dynamic>('getAdaptiveCaptureStats');
+      return stats ?? {};
+    }
+    return {};
+  }
+
+  static Future<void> _handleCaptureTierCall(MethodCall call) async {
+    if (call.method != 'onCaptureTierChanged') return;
+    final Map<dynamic, dynamic> arguments = call.arguments;
+    final tier = UXCamCaptureTier.values[arguments['tier'] as int];
+    if (tier != UXCamCaptureTier.normal) {
+      // lets the native side drop its content table too
+      GesturePlatformChannel.instance.resetInterning();
+    }
+    _captureTierChanges
+        .add(UXCamCaptureTierChange(tier, arguments['reason'] as String));
+  }
+
+  /// Configures how repeated exceptions are reported. Identical exceptions
+  /// within [window] are sent once, followed by a single report with an
+  /// `occurrences` count. Reports beyond [burst] are limited to
+  /// [reportsPerSecond].
+  ///
+  /// NOTE: This will only work on Android
+  static Future<void> configureExceptionReporting(
+      {Duration window = const Duration(seconds: 10),
+      int burst = 10,
+      double reportsPerSecond = 1.0}) async {
+    if (!kIsWeb && Platform.isAndroid) {
+      await _nonUiChannel.invokeMethod('configureExceptionReporting', {
+        "windowMs": window.inMilliseconds,
+        "burst": burst,
+        "reportsPerSecond": reportsPerSecond,
+      });
+    }
+  }
+
+  /// Returns exception reporting counters: `received`, `reported`,
+  /// `suppressed`, `rateLimited` and `internedFrames`.
+  ///
+  /// NOTE: This will only work on Android. This will return an empty map.
+  static Future<Map<String, int>> getExceptionReportingStats() async {
+    if (!kIsWeb && Platform.isAndroid) {
+      final Map<String, int>? stats = await _nonUiChannel
+          .invokeMapMethod<String, int>('getExceptionReportingStats');
+      return stats ?? {};
+    }
+    return {};
+  }
+
   /// This method is used for applying occlusion (or Blur) settings
   static Future<bool> applyOcclusion(FlutterUXOcclusion occlusion) async {
     final bool? status = await _channel.invokeMethod<bool>(
@@ -452,6 +787,124 @@ class FlutterUxcam {
     return status!;
   }
 
+  /// Sets how long a screenshot waits for occlusion rects from Flutter before
+  /// falling back to the last rects that were received successfully.
+  ///
+  /// [deadline] of zero waits without a limit.
+  ///
+  /// NOTE: This will only work on Android
+  static Future<void> setOcclusionRequestDeadline(Duration deadline) async {
+    if (!kIsWeb && Platform.isAndroid) {
+      await _channel.invokeMethod('setOcclusionRequestDeadline',
+          {"deadlineMs": deadline.inMilliseconds});
+    }
+  }
+
+  /// Returns counters for occlusion rect requests: `requests`, `timeouts`,
+  /// `fallbacks`, `dispatches` (queries sent to Flutter), `coalesced`
+  /// (requests that shared an outstanding query), `throttled` (queries to
+  /// Flutter the adaptive capture mode skipped for the last rects), the current
+  /// `deadlineMs` and the number of `engines` providing occlusions.
+  ///
+  /// NOTE: This will only work on Android. This will return an empty map.
+  static Future<Map<String, int>> getOcclusionRequestStats() async {
+    if (!kIsWeb && Platform.isAndroid) {
+      final Map<String, int>? stats = await _channel
+          .invokeMapMethod<String, int>('getOcclusionRequestStats');
+      return stats ?? {};
+    }
+    return {};
+  }
+
+  /// Configures how occlusion rects are extrapolated when a screenshot is
+  /// taken after the last bounds update, e.g. during a fling. Moving rects are
+  /// extended by their recent velocity for at most [maxExtrapolation] and
+  /// grown by the expected error; their last known bounds stay covered.
+  ///
+  /// NOTE: This will only work on Android
+  static Future<void> configureOcclusionPrediction(
+      {bool enabled = true,
+      Duration maxExtrapolation = const Duration(milliseconds: 34)}) async {
+    if (!kIsWeb && Platform.isAndroid) {
+      await _channel.invokeMethod('configureOcclusionPrediction', {
+        "enabled": enabled,
+        "maxExtrapolationMs": maxExtrapolation.inMilliseconds,
+      });
+    }
+  }
+
+  /// Configures merging of overlapping or touching occlusion rects before
+  /// they are masked. Rects closer than [slackPx] pixels count as touching.
+  ///
+  /// NOTE: This will only work on Android
+  static Future<void> configureOcclusionMerging(
+      {bool enabled = true, int slackPx = 2}) async {
+    if (!kIsWeb && Platform.isAndroid) {
+      await _channel.invokeMethod('configureOcclusionMerging',
+          {"enabled": enabled, "slackPx": slackPx});
+    }
+  }
+
+  /// Returns occlusion merge counters: `frames`, `rectsIn` and `rectsOut`.
+  ///
+  /// NOTE: This will only work on Android. This will return an empty map.
+  static Future<Map<String, dynamic>> getOcclusionMergeStats() async {
+    if (!kIsWeb && Platform.isAndroid) {
+      final Map<String, dynamic>? stats =
+          await _channel.invokeMapMethod<String, dynamic>(
+              'getOcclusionMergeStats');
+      return stats ?? {};
+    }
+    return {};
+  }
+
+  /// Returns shared occlusion buffer counters: `slots`, the last read `seq`,
+  /// `reads`, `tornReads` (reads that met a buffer being written) and
+  /// `inactiveReads` (reads while the registry used messages instead).
+  ///
+  /// NOTE: This will only work on Android. This will return an empty map.
+  static Future<Map<String, int>> getSharedOcclusionStats() async {
+    if (!kIsWeb && Platform.isAndroid) {
+      final Map<String, int>? stats = await _channel
+          .invokeMapMethod<String, int>('getSharedOcclusionStats');
+      return stats ?? {};
+    }
+    return {};
+  }
+
+  /// Turns native plugin metrics on or off. Metrics are off by default and
+  /// cost next to nothing while off. When [dumpInterval] is given the
+  /// snapshot is also written to logcat at that interval.
+  ///
+  /// NOTE: This will only work on Android
+  static Future<void> configurePluginMetrics(
+      {bool enabled = true, Duration? dumpInterval}) async {
+    if (!kIsWeb && Platform.isAndroid) {
+      await _channel.invokeMethod('configurePluginMetrics', {
+        "enabled": enabled,
+        "dumpIntervalMs": dumpInterval?.inMilliseconds ?? 0,
+      });
+    }
+  }
+
+  /// Returns a snapshot of the plugin metrics: per-method call handling time
+  /// under `methods`, `occlusionRoundTrip` and `rectsPerFrame` histograms, and
+  /// the `parseFailures` count. Each histogram has `count`, `sum`, `max` and
+  /// `buckets`, bucketed by `latencyBoundsUs` or `rectCountBounds`.
+  /// Pass [reset] to clear the counters after reading them.
+  ///
+  /// NOTE: This will only work on Android. This will return an empty map.
+  static Future<Map<String, dynamic>> getPluginMetrics(
+      {bool reset = false}) async {
+    if (!kIsWeb && Platform.isAndroid) {
+      final Map<String, dynamic>? metrics =
+          await _channel.invokeMapMethod<String, dynamic>(
+              'getPluginMetrics', {"reset": reset});
+      return metrics ?? {};
+    }
+    return {};
+  }
+
   /// Here the coordinates are the location of the view/enclosing box
   /// x0 - topLeft, y0 - topLeft
   /// x1 - bottomRight, y1 - bottomRight
@@ -477,6 +930,14 @@ class FlutterUxcam {
   static Future<void> appendGestureContent(
       Offset position, TrackData trackData) async {
     final data = trackData.toJson();
+    if (!kIsWeb && Platform.isAndroid) {
+      GesturePlatformChannel.instance.send(
+        position.dx.toNative.toDouble(),
+        position.dy.toNative.toDouble(),
+        GesturePlatformChannel.javaString(data),
+      );
+      return;
+    }
     await _channel.invokeMethod<void>("appendGestureContent", {
       "x": position.dx.toNative.toDouble(),
       "y": position.dy.toNative.toDouble(),
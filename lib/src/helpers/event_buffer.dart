@@ -0,0 +1,91 @@
+import 'dart:async';
+
+import 'package:flutter/foundation.dart';
+import 'package:flutter/widgets.dart';
+
+/// Sends [events] and returns the ones that could not be logged, keyed by
+/// their index, with the reason as value.
+typedef EventBatchSender = Future<Map<int, String>> Function(
+    List<Map<String, dynamic>> events);
+
+/// Collects events and sends them as one batch once [maxEvents] are queued,
+/// [maxDelay] has passed since the first queued event, or the app leaves the
+/// foreground.
+///
+/// Batches are sent one after another, in the order they were flushed. The
+/// future returned by [flush] completes once every batch flushed so far has
+/// been answered, so awaiting it before another call keeps the buffered
+/// events ahead of that call.
+///
+/// Flushes are not awaited by the timer or the lifecycle observer, so
+/// failures are logged and counted in [failedCount] instead of thrown.
+class UXCamEventBuffer with WidgetsBindingObserver {
+  UXCamEventBuffer({
+    required this.send,
+    this.maxEvents = 20,
+    this.maxDelay = const Duration(milliseconds: 500),
+  }) {
+    WidgetsBinding.instance.addObserver(this);
+  }
+
+  final EventBatchSender send;
+  final int maxEvents;
+  final Duration maxDelay;
+
+  List<Map<String, dynamic>> _pending = [];
+  Timer? _timer;
+  Future<void> _sending = Future.value();
+
+  int get pendingCount => _pending.length;
+
+  /// Events that could not be logged since this buffer was created.
+  int get failedCount => _failedCount;
+  int _failedCount = 0;
+
+  void add(String eventName, [Map<String, dynamic>? properties]) {
+    _pending.add({"eventName": eventName, "properties": properties});
+
+    if (_pending.length >= maxEvents) {
+      flush();
+    } else {
+      _timer ??= Timer(maxDelay, flush);
+    }
+  }
+
+  /// Sends the queued events, after any batch still waiting for an answer.
+  Future<void> flush() {
+    _timer?.cancel();
+    _timer = null;
+    if (_pending.isEmpty) return _sending;
+
+    final events = _pending;
+    _pending = [];
+    return _sending = _sending.then((_) => _send(events));
+  }
+
+  Future<void> _send(List<Map<String, dynamic>> events) async {
+    try {
+      final failures = await send(events);
+      failures.forEach((index, error) {
+        _failedCount++;
+        final name = index < events.length ? events[index]["eventName"] : index;
+        debugPrint('UXCam: event "$name" was not logged: $error');
+      });
+    } catch (e) {
+      _failedCount += events.length;
+      debugPrint('UXCam: ${events.length} buffered events were not logged: $e');
+    }
+  }
+
+  Future<void> dispose() async {
+    WidgetsBinding.instance.removeObserver(this);
+    await flush();
+  }
+
+  @override
+  void didChangeAppLifecycleState(AppLifecycleState state) {
+    if (state != AppLifecycleState.resumed) {
+      flush();
+    }
+  }
+}
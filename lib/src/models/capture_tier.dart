@@ -0,0 +1,13 @@
+/// Capture tier picked by the adaptive capture mode on Android, from memory
+/// pressure and dropped frames. Higher tiers answer occlusion requests less
+/// often and release pooled buffers.
+enum UXCamCaptureTier { normal, reduced, minimal }
+
+/// A change of the [UXCamCaptureTier] in effect. [reason] is `memory`,
+/// `frames` or `configure`.
+class UXCamCaptureTierChange {
+  const UXCamCaptureTierChange(this.tier, this.reason);
+
+  final UXCamCaptureTier tier;
+  final String reason;
+}
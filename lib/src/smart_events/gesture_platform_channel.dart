@@ -0,0 +1,153 @@
+import 'dart:async';
+import 'dart:convert';
+import 'dart:typed_data';
+
+import 'package:flutter/services.dart';
+
+/// Sends gesture content to the native side over a compact binary channel.
+///
+/// Gestures queued in the same event-loop turn go out as one message. Content
+/// strings are interned: the first use of a string defines an id, later
+/// gestures with the same content only carry the id.
+///
+/// Binary format (little endian):
+/// Header: [count:4][reserved:4] = 8 bytes
+/// Define record: [kind=1:1][contentId:4][length:4][utf8 bytes]
+/// Gesture record: [kind=0:1][x:4][y:4][timestampMs:8][contentId:4]
+/// Reset record: [kind=2:1], clears the native content table.
+class GesturePlatformChannel {
+  GesturePlatformChannel._();
+
+  static final GesturePlatformChannel instance = GesturePlatformChannel._();
+
+  static const BasicMessageChannel<ByteData> _channel =
+      BasicMessageChannel<ByteData>(
+    'uxcam_gesture_v1',
+    BinaryCodec(),
+  );
+
+  static const int _kindGesture = 0;
+  static const int _kindDefine = 1;
+  static const int _kindReset = 2;
+
+  static const int _headerSize = 8;
+  static const int _gestureSize = 21;
+  static const int _maxInternedContents = 1024;
+
+  final Map<String, int> _contentIds = {};
+  final List<_QueuedGesture> _queue = [];
+  bool _resetPending = true;
+  bool _flushScheduled = false;
+
+  void send(double x, double y, String content) {
+    _queue.add(_QueuedGesture(
+      x,
+      y,
+      DateTime.now().millisecondsSinceEpoch,
+      content,
+    ));
+    if (!_flushScheduled) {
+      _flushScheduled = true;
+      scheduleMicrotask(_flush);
+    }
+  }
+
+  void _flush() {
+    _flushScheduled = false;
+    if (_queue.isEmpty) return;
+
+    final definitions = <int, Uint8List>{};
+    var size = _headerSize;
+    var count = 0;
+
+    if (_contentIds.length + _queue.length > _maxInternedContents) {
+      _contentIds.clear();
+      _resetPending = true;
+    }
+    if (_resetPending) {
+      size += 1;
+      count++;
+    }
+
+    final ids = <int>[];
+    for (final gesture in _queue) {
+      var id = _contentIds[gesture.content];
+      if (id == null) {
+        id = _contentIds.length;
+        _contentIds[gesture.content] = id;
+        final bytes = utf8.encode(gesture.content);
+        definitions[id] = bytes;
+        size += 9 + bytes.length;
+        count++;
+      }
+      ids.add(id);
+      size += _gestureSize;
+      count++;
+    }
+
+    final buffer = ByteData(size);
+    buffer.setInt32(0, count, Endian.little);
+    buffer.setInt32(4, 0, Endian.little); // reserved for future use
+
+    var offset = _headerSize;
+    if (_resetPending) {
+      buffer.setUint8(offset, _kindReset);
+      offset += 1;
+      _resetPending = false;
+    }
+
+    for (var i = 0; i < _queue.length; i++) {
+      final gesture = _queue[i];
+      final id = ids[i];
+
+      final bytes = definitions.remove(id);
+      if (bytes != null) {
+        buffer.setUint8(offset, _kindDefine);
+        buffer.setInt32(offset + 1, id, Endian.little);
+        buffer.setInt32(offset + 5, bytes.length, Endian.little);
+        buffer.buffer.asUint8List().setAll(offset + 9, bytes);
+        offset += 9 + bytes.length;
+      }
+
+      buffer.setUint8(offset, _kindGesture);
+      buffer.setFloat32(offset + 1, gesture.x, Endian.little);
+      buffer.setFloat32(offset + 5, gesture.y, Endian.little);
+      buffer.setInt64(offset + 9, gesture.timestampMs, Endian.little);
+      buffer.setInt32(offset + 17, id, Endian.little);
+      offset += _gestureSize;
+    }
+
+    _queue.clear();
+    _channel.send(buffer);
+  }
+
+  /// Forgets every interned content string, so the next message clears the
+  /// native content table and the memory it holds.
+  void resetInterning() {
+    _contentIds.clear();
+    _resetPending = true;
+  }
+
+  /// Renders [value] the way `java.util.Map#toString` does, which is the
+  /// content format the Android SDK receives from `appendGestureContent`.
+  static String javaString(Object? value) {
+    if (value is Map) {
+      final entries =
+          value.entries.map((e) => '${e.key}=${javaString(e.value)}');
+      return '{${entries.join(', ')}}';
+    }
+    if (value is List) {
+      return '[${value.map(javaString).join(', ')}]';
+    }
+    return '$value';
+  }
+}
+
+class _QueuedGesture {
+  const _QueuedGesture(this.x, this.y, this.timestampMs, this.content);
+
+  final double x;
+  final double y;
+  final int timestampMs;
+  final String content;
+}
@@ -45,6 +45,7 @@ class OcclusionPlatformChannel {
         buffer.setFloat32(offset + 20, bounds.bottom * dpr, Endian.little);
         buffer.setUint8(offset + 24, update.type.index);
       } else {
+        // left -1 with right and bottom 0 signals removal
         buffer.setFloat32(offset + 8, -1.0, Endian.little);
         buffer.setFloat32(offset + 12, 0, Endian.little);
         buffer.setFloat32(offset + 16, 0, Endian.little);
@@ -69,7 +70,8 @@ class OcclusionPlatformChannel {
     buffer.setInt32(4, 0, Endian.little);
     buffer.setInt32(headerSize, viewId, Endian.little);
     buffer.setInt32(headerSize + 4, id, Endian.little);
-    buffer.setFloat32(headerSize + 8, -1.0, Endian.little); // left=-1 signals removal
+    // left -1 with right and bottom 0 signals removal
+    buffer.setFloat32(headerSize + 8, -1.0, Endian.little);
 
     _channel.send(buffer);
   }
@@ -1,4 +1,5 @@
 import 'dart:io';
+import 'dart:typed_data';
 
 import 'package:flutter/foundation.dart';
 import 'package:flutter/scheduler.dart';
@@ -6,12 +7,18 @@ import 'package:flutter/services.dart';
 import 'package:flutter/widgets.dart';
 
 import 'occlusion_models.dart';
+import 'occlusion_platform_channel.dart';
+import 'occlusion_shared_buffer.dart';
 
 class OcclusionRegistry with WidgetsBindingObserver {
   OcclusionRegistry._() {
     WidgetsBinding.instance.addObserver(this);
     _setupMethodChannelHandler();
     _setupPersistentFrameCallback();
+    if (_pushesUpdates) {
+      // Drop anything a previous isolate (e.g. hot restart) left natively.
+      _platformChannel.clearAll();
+    }
   }
 
   static final OcclusionRegistry instance = OcclusionRegistry._();
@@ -26,6 +33,30 @@ class OcclusionRegistry with WidgetsBindingObserver {
   static const MethodChannel _requestChannelIOS =
       MethodChannel('flutter_uxcam');
 
+  static const OcclusionPlatformChannel _platformChannel =
+      OcclusionPlatformChannel();
+
+  /// Android keeps a native copy of the rects, fed from [_onFrame], so
+  /// screenshots do not need a round trip through [_requestChannel].
+  static final bool _pushesUpdates = !kIsWeb && Platform.isAndroid;
+
+  final Map<int, (Rect, double)> _sentBounds = {};
+  int _frameSequence = 0;
+
+  /// Memory shared with the native store, see [attachSharedBuffer]. While
+  /// [_sharedActive], [_onFrame] publishes through it instead of the channel.
+  OcclusionSharedBuffer? _sharedBuffer;
+  bool _sharedActive = false;
+
+  bool get hasSharedBuffer => _sharedBuffer != null;
+
+  /// Publishes rects through the buffer native allocated at [address] from
+  /// the next frame on. Keeps using the channel when it cannot be mapped.
+  void attachSharedBuffer(int address, int size, int slots) {
+    _sharedBuffer = OcclusionSharedBuffer.attach(address, size, slots);
+    _sharedActive = false;
+  }
+
   void _setupMethodChannelHandler() {
     _requestChannel.setMethodCallHandler(_handleMethodCall);
     if (!kIsWeb) {
@@ -40,7 +71,18 @@ class OcclusionRegistry with WidgetsBindingObserver {
   }
 
   void _onFrame(Duration timestamp) {
-    if (_entries.isEmpty) return;
+    if (_entries.isEmpty) {
+      if (_sentBounds.isNotEmpty) {
+        _sentBounds.clear();
+        if (_sharedActive) {
+          _sharedBuffer!
+              .publish(const [], DateTime.now().millisecondsSinceEpoch);
+        } else {
+          _platformChannel.clearAll();
+        }
+      }
+      return;
+    }
 
     final snapshot = _entries.values.toList();
 
@@ -51,11 +93,125 @@ class OcclusionRegistry with WidgetsBindingObserver {
         _refreshEntryFromBox(entry, box);
       }
     }
+
+    if (_pushesUpdates) {
+      _pushChangedBounds();
+    }
+  }
+
+  /// Sends only the entries whose bounds changed since the last frame, plus
+  /// removals for entries that are gone or no longer visible. With a shared
+  /// buffer, the whole set is published instead whenever anything changed.
+  void _pushChangedBounds() {
+    final nowMs = DateTime.now().millisecondsSinceEpoch;
+    _expireStaleEntries(nowMs);
+    _frameSequence++;
+
+    final shared = _sharedBuffer;
+    final updates = <OcclusionUpdate>[];
+    final live = shared == null ? null : <OcclusionUpdate>[];
+    final liveIds = <int>{};
+
+    for (final entry in _entries.values) {
+      final bounds = _pushableBounds(entry, nowMs);
+      if (bounds == null) continue;
+
+      liveIds.add(entry.id);
+      final dpr = entry.devicePixelRatio ?? 1.0;
+      final changed = _sentBounds[entry.id] != (bounds, dpr);
+      if (!changed && live == null) continue;
+
+      final update = OcclusionUpdate(
+        id: entry.id,
+        bounds: bounds,
+        type: entry.type ?? OcclusionType.overlay,
+        devicePixelRatio: dpr,
+        viewId: entry.viewId ?? 0,
+        frameSequence: _frameSequence,
+      );
+      live?.add(update);
+      if (!changed) continue;
+
+      _sentBounds[entry.id] = (bounds, dpr);
+      updates.add(update);
+    }
+
+    _sentBounds.removeWhere((id, _) {
+      if (liveIds.contains(id)) return false;
+      updates.add(OcclusionUpdate(
+        id: id,
+        bounds: null,
+        type: OcclusionType.none,
+        devicePixelRatio: 1.0,
+        viewId: 0,
+        frameSequence: _frameSequence,
+      ));
+      return true;
+    });
+
+    if (shared != null && _publishShared(shared, updates, live!, nowMs)) {
+      return;
+    }
+    _platformChannel.sendBatchUpdate(updates);
+  }
+
+  /// Publishes [live] when anything changed and returns true. Returns false
+  /// when there are more rects than slots; the first time, native is switched
+  /// back to the channel and [updates] replaced by the full set, as the
+  /// channel only carries changes.
+  bool _publishShared(
+    OcclusionSharedBuffer shared,
+    List<OcclusionUpdate> updates,
+    List<OcclusionUpdate> live,
+    int nowMs,
+  ) {
+    if (shared.fits(live.length)) {
+      if (updates.isNotEmpty || !_sharedActive) {
+        shared.publish(live, nowMs);
+        _sharedActive = true;
+      }
+      return true;
+    }
+
+    if (_sharedActive) {
+      _sharedActive = false;
+      shared.deactivate(nowMs);
+      _platformChannel.clearAll();
+      updates
+        ..clear()
+        ..addAll(live);
+    }
+    return false;
+  }
+
+  /// Same selection rules as [_collectRequestedBounds], without touching
+  /// the render boxes again.
+  Rect? _pushableBounds(_OcclusionEntry entry, int nowMs) {
+    Rect? bounds;
+    if (entry.attached) {
+      final box = entry.box;
+      if (box == null || !box.attached || !box.hasSize) {
+        if ((nowMs - entry.lastUpdatedMs) > _detachedTtlMs) return null;
+        bounds = entry.lastBounds;
+      } else {
+        bounds = box.getUnionOfHistoricalBounds();
+      }
+    } else {
+      bounds = entry.lastBounds;
+    }
+
+    if (bounds == null || bounds.width <= 0 || bounds.height <= 0) {
+      return null;
+    }
+    return bounds;
   }
 
   Future<dynamic> _handleMethodCall(MethodCall call) async {
     switch (call.method) {
       case 'requestOcclusionRects':
+        if (!kIsWeb && Platform.isAndroid) {
+          return _handleFlatRectsRequest();
+        }
         return _handleCachedRectsRequest();
       case 'requestAllOcclusionRects': //Currently iOS only
         return _handleCachedRectsRequest();
@@ -70,11 +226,35 @@ class OcclusionRegistry with WidgetsBindingObserver {
   }
 
   List<Map<String, dynamic>> _handleCachedRectsRequest() {
+    final rects = <Map<String, dynamic>>[];
+    _collectRequestedBounds(
+      (entry, bounds) => rects.add(_rectDataFromEntry(entry, bounds)),
+    );
+    return rects;
+  }
+
+  /// Flat wire format used on Android: four pixel-space values
+  /// (left, top, right, bottom) per rect, decoded natively without maps.
+  Float32List _handleFlatRectsRequest() {
+    final values = <double>[];
+    _collectRequestedBounds((entry, bounds) {
+      final dpr = entry.devicePixelRatio ?? 1.0;
+      values
+        ..add((bounds.left * dpr).roundToDouble())
+        ..add((bounds.top * dpr).roundToDouble())
+        ..add((bounds.right * dpr).roundToDouble())
+        ..add((bounds.bottom * dpr).roundToDouble());
+    });
+    return Float32List.fromList(values);
+  }
+
+  void _collectRequestedBounds(
+    void Function(_OcclusionEntry entry, Rect bounds) emit,
+  ) {
     final requestTimestamp = DateTime.now().millisecondsSinceEpoch;
 
     _expireStaleEntries(requestTimestamp);
 
-    final rects = <Map<String, dynamic>>[];
     final snapshot = _entries.values.toList();
 
     for (final entry in snapshot) {
@@ -84,8 +264,7 @@ class OcclusionRegistry with WidgetsBindingObserver {
           final canUseCache = entry.lastBounds != null &&
               (requestTimestamp - entry.lastUpdatedMs) <= _detachedTtlMs;
           if (canUseCache) {
-            final rectData = _rectDataFromEntry(entry, entry.lastBounds!);
-            rects.add(rectData);
+            emit(entry, entry.lastBounds!);
           }
           continue;
         }
@@ -98,19 +277,15 @@ class OcclusionRegistry with WidgetsBindingObserver {
         }
 
         _refreshEntryFromBox(entry, box, overrideBounds: bounds);
-        final rectData = _rectDataFromEntry(entry, bounds);
-        rects.add(rectData);
+        emit(entry, bounds);
       } else {
         final bounds = entry.lastBounds;
         if (bounds == null || bounds.width <= 0 || bounds.height <= 0) {
           continue;
         }
-        final rectData = _rectDataFromEntry(entry, bounds);
-        rects.add(rectData);
+        emit(entry, bounds);
       }
     }
-
-    return rects;
   }
 
   void register(OcclusionReportingRenderBox box) {
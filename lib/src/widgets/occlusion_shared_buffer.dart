@@ -0,0 +1,104 @@
+import 'dart:typed_data';
+
+import 'occlusion_models.dart';
+import 'occlusion_shared_memory.dart';
+
+/// Writes occlusion rects into memory shared with the native
+/// `SharedOcclusionBuffer`, which reads them when the SDK asks for rects.
+///
+/// Layout (little endian): header [magic:4][version:4][slots:4][seq:4], then
+/// two buffers, each [seq:4][count:4][writtenAtMs:8][checksum:4][reserved:4]
+/// followed by `slots` items of
+/// [viewId:4][id:4][left:4][top:4][right:4][bottom:4][type:4].
+///
+/// Every publish fills the buffer native is not reading, `seq & 1`, and then
+/// stores its seq in the header. Native checks the buffer seq and checksum to
+/// tell a finished buffer from one being written.
+class OcclusionSharedBuffer {
+  OcclusionSharedBuffer._(this._data, this.slots)
+      : _seq = _data.getInt32(_seqOffset, Endian.little);
+
+  /// Maps the buffer native allocated at [address], or returns null when it
+  /// cannot be mapped or its header does not match.
+  static OcclusionSharedBuffer? attach(int address, int size, int slots) {
+    if (size < _headerSize + 2 * (_bufferHeaderSize + slots * _slotSize)) {
+      return null;
+    }
+    final bytes = mapSharedMemory(address, size);
+    if (bytes == null) return null;
+
+    final data = ByteData.sublistView(bytes);
+    if (data.getInt32(0, Endian.little) != _magic ||
+        data.getInt32(4, Endian.little) != _version ||
+        data.getInt32(8, Endian.little) != slots) {
+      return null;
+    }
+    return OcclusionSharedBuffer._(data, slots);
+  }
+
+  static const _magic = 0x424f5855; // "UXOB"
+  static const _version = 1;
+  static const _headerSize = 16;
+  static const _bufferHeaderSize = 24;
+  static const _slotSize = 28;
+  static const _seqOffset = 12;
+  static const _inactive = -1;
+  static const _maxSeq = 0x7fffffff;
+
+  final ByteData _data;
+
+  /// Most rects one publish can hold.
+  final int slots;
+
+  int _seq;
+
+  bool fits(int count) => count <= slots;
+
+  /// Publishes [rects] as the complete set of occlusions, written at [nowMs].
+  void publish(List<OcclusionUpdate> rects, int nowMs) {
+    assert(fits(rects.length));
+    _write(rects, rects.length, nowMs);
+  }
+
+  /// Tells native to keep the rects it receives over the channel instead.
+  void deactivate(int nowMs) => _write(const [], _inactive, nowMs);
+
+  void _write(List<OcclusionUpdate> rects, int count, int nowMs) {
+    // odd and even seqs alternate between the two buffers, also on wrap
+    final seq = _seq >= _maxSeq ? 2 : _seq + 1;
+    final base =
+        _headerSize + (seq & 1) * (_bufferHeaderSize + slots * _slotSize);
+    _data.setInt32(base, 0, Endian.little);
+
+    var hash = _mix(_mix(_mix(seq, count), nowMs), nowMs >> 32);
+    var offset = base + _bufferHeaderSize;
+    for (final rect in rects) {
+      final bounds = rect.bounds!;
+      final dpr = rect.devicePixelRatio;
+      _data
+        ..setInt32(offset, rect.viewId, Endian.little)
+        ..setInt32(offset + 4, rect.id, Endian.little)
+        ..setFloat32(offset + 8, bounds.left * dpr, Endian.little)
+        ..setFloat32(offset + 12, bounds.top * dpr, Endian.little)
+        ..setFloat32(offset + 16, bounds.right * dpr, Endian.little)
+        ..setFloat32(offset + 20, bounds.bottom * dpr, Endian.little)
+        ..setInt32(offset + 24, rect.type.index, Endian.little);
+      for (var word = offset; word < offset + _slotSize; word += 4) {
+        hash = _mix(hash, _data.getUint32(word, Endian.little));
+      }
+      offset += _slotSize;
+    }
+
+    _data
+      ..setInt32(base + 4, count, Endian.little)
+      ..setInt64(base + 8, nowMs, Endian.little)
+      ..setUint32(base + 16, hash, Endian.little)
+      ..setInt32(base, seq, Endian.little)
+      ..setInt32(_seqOffset, seq, Endian.little);
+    _seq = seq;
+  }
+
+  /// `31 * hash + word` in 32 bits, matching the native checksum.
+  static int _mix(int hash, int word) =>
+      (hash * 31 + (word & 0xffffffff)) & 0xffffffff;
+}
@@ -0,0 +1,2 @@
+export 'occlusion_shared_memory_stub.dart'
+    if (dart.library.ffi) 'occlusion_shared_memory_ffi.dart';
@@ -0,0 +1,6 @@
+import 'dart:ffi';
+import 'dart:typed_data';
+
+/// Views [size] bytes of native memory at [address], without copying.
+Uint8List? mapSharedMemory(int address, int size) =>
+    Pointer<Uint8>.fromAddress(address).asTypedList(size);
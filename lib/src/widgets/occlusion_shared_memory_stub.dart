@@ -0,0 +1,4 @@
+import 'dart:typed_data';
+
+/// Native memory cannot be mapped on this platform.
+Uint8List? mapSharedMemory(int address, int size) => null;